@@ -48,9 +48,8 @@
     },
     
     /**
-     * Safe rank : prevents infinite loop on dependencies chain
+     * Safe rank : reports dependency loops (files are still ranked and built)
      *
      */
-    safeRank : true,
-    safeRankLimit : 100
+    safeRank : true
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package net.prime.extapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Synthetic ext app generator
+ *
+ *   generates an app tree of ext classes for benchmarks :
+ *   classes are spread over levels, each class requires classes of the next level
+ *
+ * - classes : number of ext classes
+ * - fan-out : dependencies of each class (classes of the last level have none)
+ * - depth : number of levels
+ * - diamonds : share of dependencies which point to any class of the next level
+ *   (classes with common dependencies) instead of own sub-classes
+ *
+ *   example: java net.prime.extapp.ExtAppGenerator /tmp/bench 10000 4 8 0.2
+ *
+ */
+public class ExtAppGenerator {
+
+    public static final String APP_NAME = "Bench";
+    public static final String APP_FOLDER = "/bench";
+
+    private int classes = 1000;
+    private int fanOut = 4;
+    private int depth = 6;
+    private double diamonds = 0.2;
+    private long seed = 42;
+
+    /**
+     * Creates a new generator
+     *
+     * @param int classes
+     * @param int fanOut
+     * @param int depth
+     * @param double diamonds 0..1
+     */
+    ExtAppGenerator(int classes, int fanOut, int depth, double diamonds) {
+        this.classes = Math.max(classes, depth);
+        this.fanOut = fanOut;
+        this.depth = depth;
+        this.diamonds = diamonds;
+    }
+
+    public static String getConfigFilename() {
+        return APP_FOLDER + "/extapp-config.js";
+    }
+
+    public static String getSourceFilename() {
+        return APP_FOLDER + "/app.js";
+    }
+
+    public static String getOutputFilename() {
+        return APP_FOLDER + "/app-output.js";
+    }
+
+    /**
+     * Get ext class name
+     *
+     *   example: 'Bench.l2.C17'
+     *
+     * @param int level
+     * @param int index
+     * @return String
+     */
+    public static String getExtClass(int level, int index) {
+        return APP_NAME + ".l" + level + ".C" + index;
+    }
+
+    /**
+     * Get classes of each level
+     *
+     * @return int[]
+     */
+    private int[] getLevelSizes() {
+        int[] sizes = new int[depth];
+
+        for (int level = 0; level < depth; level++) {
+            sizes[level] = classes / depth + (level < classes % depth ? 1 : 0);
+        }
+        return sizes;
+    }
+
+    /**
+     * Generate app tree
+     *
+     * @param File basePath web folder
+     * @throws IOException
+     */
+    public void generate(File basePath) throws IOException {
+        File appFolder = new File(basePath, APP_FOLDER);
+        Random random = new Random(seed);
+        int[] sizes = getLevelSizes();
+
+        FileUtils.deleteDirectory(appFolder);
+        FileUtils.forceMkdir(appFolder);
+
+        FileUtils.writeStringToFile(new File(basePath, getConfigFilename()), getConfig(), ExtappMain.charset);
+
+        List<String> roots = new ArrayList<String>();
+        for (int i = 0; i < sizes[0]; i++) {
+            roots.add(getExtClass(0, i));
+        }
+        FileUtils.writeStringToFile(new File(basePath, getSourceFilename()),
+                getSource(APP_NAME + ".Application", "Ext.app.Application", roots), ExtappMain.charset);
+
+        for (int level = 0; level < depth; level++) {
+            int next = level + 1 < depth ? sizes[level + 1] : 0;
+            int child = 0;
+
+            for (int i = 0; i < sizes[level]; i++) {
+                List<String> depExtClasses = new ArrayList<String>();
+
+                for (int j = 0; j < fanOut && next > 0; j++) {
+                    int dep = random.nextDouble() < diamonds ? random.nextInt(next) : child++ % next;
+                    depExtClasses.add(getExtClass(level + 1, dep));
+                }
+
+                File file = new File(appFolder, "l" + level + "/C" + i + ".js");
+                FileUtils.writeStringToFile(file, getSource(getExtClass(level, i), "Ext.panel.Panel", depExtClasses),
+                        ExtappMain.charset);
+            }
+        }
+    }
+
+    private String getConfig() {
+        return "{\n"
+                + "    name : '" + APP_NAME + "',\n"
+                + "    appFolder : '" + APP_FOLDER + "',\n"
+                + "    paths : {\n"
+                + "        '" + APP_NAME + "' : '" + APP_FOLDER + "',\n"
+                + "        'Ext' : '/ext/src'\n"
+                + "    },\n"
+                + "    extClasses : {\n"
+                + "        'Ext' : false\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    /**
+     * Get source of ext class
+     *
+     *   with comments, strings and a few methods like usual ext classes
+     *
+     */
+    private String getSource(String extClass, String extend, List<String> requires) {
+        StringBuilder source = new StringBuilder();
+
+        source.append("/**\n * " + extClass + "\n *\n * requires: 'Commented.Out' (not a dependency)\n */\n");
+        source.append("Ext.define('" + extClass + "', {\n");
+        source.append("    extend: '" + extend + "',\n\n");
+        source.append("    requires: [\n");
+        for (int i = 0; i < requires.size(); i++) {
+            source.append("        '" + requires.get(i) + "'" + (i + 1 < requires.size() ? "," : "") + "\n");
+        }
+        source.append("    ],\n\n");
+        source.append("    title: 'requires: [\\'Not.A.Dependency\\']',\n");
+        source.append("    config: { store: null, pattern: /requires:\\s*\\[/ },\n\n");
+        source.append("    initComponent: function() {\n");
+        source.append("        var me = this; // keep scope\n");
+        source.append("        me.items = [{ xtype: 'component', html: \"<b>\" + me.title + \"</b>\" }];\n");
+        source.append("        me.callParent(arguments);\n");
+        source.append("    },\n\n");
+        source.append("    onRender: function(ct, position) {\n");
+        source.append("        /* rendered once */\n");
+        source.append("        this.callParent([ct, position]);\n");
+        source.append("    }\n");
+        source.append("});\n");
+
+        return source.toString();
+    }
+
+    /**
+     * main
+     *
+     * @param args base path, classes, fan-out, depth, diamonds
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("\nUsage: java net.prime.extapp.ExtAppGenerator <base path> [classes] [fan-out] [depth] [diamonds]\n");
+            System.exit(1);
+        }
+
+        ExtAppGenerator generator = new ExtAppGenerator(
+                args.length > 1 ? Integer.parseInt(args[1]) : 1000,
+                args.length > 2 ? Integer.parseInt(args[2]) : 4,
+                args.length > 3 ? Integer.parseInt(args[3]) : 6,
+                args.length > 4 ? Double.parseDouble(args[4]) : 0.2);
+
+        generator.generate(new File(args[0]));
+        System.out.println("Generated " + generator.classes + " classes : " + new File(args[0], APP_FOLDER).getPath());
+    }
+}
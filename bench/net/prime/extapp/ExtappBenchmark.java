@@ -0,0 +1,156 @@
+package net.prime.extapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Combiner benchmarks (JMH)
+ *
+ *   run on synthetic app trees : ant bench -Dbench.args="-p classes=50000"
+ *
+ * - read and decode source files
+ * - scan source files and filter found ext classes
+ * - resolve paths and include/exclude ext classes
+ * - full build of app tree
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtappBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int classes;
+
+    @Param({ "4" })
+    public int fanOut;
+
+    @Param({ "6" })
+    public int depth;
+
+    @Param({ "0.2" })
+    public double diamonds;
+
+    @Param({ "1" })
+    public int threads;
+
+    private File basePath = null;
+    private ExtappConfig config = null;
+    private ExtFileCombiner combiner = null;
+    private ExtDependencyScanner scanner = null;
+
+    private ExtSourceFile sourceFile = null;
+    private List<List<String>> found = null;
+    private List<String> extClasses = new ArrayList<String>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        basePath = Files.createTempDirectory("extapp-bench").toFile();
+        new ExtAppGenerator(classes, fanOut, depth, diamonds).generate(basePath);
+
+        ExtappMain main = createMain();
+        config = main.getConfig();
+        combiner = new ExtFileCombiner(main, config);
+        scanner = combiner.createDependencyScanner();
+
+        String webPath = ExtAppGenerator.APP_FOLDER + "/l1/C0.js";
+        sourceFile = new ExtSourceFile(ExtAppGenerator.getExtClass(1, 0), basePath.getPath() + webPath, webPath);
+        found = scanner.scan(sourceFile.getCode());
+
+        for (int level = 0; level < depth; level++) {
+            extClasses.add(ExtAppGenerator.getExtClass(level, 0));
+            extClasses.add("Ext.panel.Panel");
+            extClasses.add("Ext.util.Format");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    /**
+     * Create app of generated tree
+     *
+     *   without cache : each build reads and scans all source files
+     *
+     */
+    private ExtappMain createMain() throws IOException {
+        ExtappMain main = new ExtappMain(false, false, false, threads, basePath.getPath(),
+                ExtAppGenerator.getConfigFilename(), ExtAppGenerator.getSourceFilename(),
+                ExtAppGenerator.getOutputFilename());
+
+        main.setCache(false);
+        main.prepare();
+        return main;
+    }
+
+    @Benchmark
+    public String getContents() {
+        return new ExtSourceFile(sourceFile.getExtClass(), sourceFile.getFilePath(), sourceFile.getWebPath())
+                .getContents();
+    }
+
+    @Benchmark
+    public List<List<String>> scan() {
+        return scanner.scan(new ExtSourceFile(sourceFile.getExtClass(), sourceFile.getFilePath(),
+                sourceFile.getWebPath()).getCode());
+    }
+
+    @Benchmark
+    public void getDependentExtClassesByType(Blackhole blackhole) {
+        String[] types = scanner.getTypes();
+
+        for (int i = 0; i < types.length; i++) {
+            blackhole.consume(combiner.getDependentExtClassesByType(types[i], found.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void resolvePathByTree(Blackhole blackhole) {
+        for (String extClass : extClasses) {
+            combiner.resolvePathByTree(extClass);
+            blackhole.consume(config.getPaths().get(extClass));
+        }
+    }
+
+    @Benchmark
+    public void isIncludeExtClass(Blackhole blackhole) {
+        for (String extClass : extClasses) {
+            blackhole.consume(combiner.isIncludeExtClass(extClass));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void init() throws IOException {
+        ExtappMain main = createMain();
+        new ExtFileCombiner(main, main.getConfig()).init();
+    }
+}
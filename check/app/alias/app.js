@@ -0,0 +1,10 @@
+/*global Ext*/
+/*jshint strict: false*/
+Ext.application({
+    name: 'Check',
+    appFolder: '/alias',
+
+    requires: [
+        'Check.view.Main'
+    ]
+});
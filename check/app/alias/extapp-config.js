@@ -0,0 +1,18 @@
+{
+    name : 'Check',
+    appFolder : '/alias',
+
+    paths : {
+        'Check' : '/alias'
+    },
+
+    dependTypes : {
+        requires : true,
+        extend : true,
+        xtype : true
+    },
+
+    extClasses : {
+        'Ext' : false
+    }
+}
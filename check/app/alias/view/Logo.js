@@ -0,0 +1,6 @@
+/*global Ext*/
+/*jshint strict: false*/
+Ext.define('Check.view.Logo', {
+    extend: 'Ext.Img',
+    alias: 'widget.checklogo'
+});
@@ -0,0 +1,7 @@
+/*global Ext*/
+/*jshint strict: false*/
+Ext.define('Check.view.Main', {
+    extend: 'Ext.panel.Panel',
+
+    items: [{ xtype: 'checklogo' }]
+});
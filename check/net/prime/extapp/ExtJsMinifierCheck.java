@@ -0,0 +1,76 @@
+package net.prime.extapp;
+
+/**
+ * Minifier checks
+ *
+ *   minified code of each case is compared with the expected code,
+ *   exits with status 1 if any case fails
+ *
+ *   ant check.minify
+ *
+ */
+public class ExtJsMinifierCheck {
+
+    // code, expected minified code
+    private static final String[][] CASES = {
+        // tokens which would merge
+        { "var a = 1;", "var a=1;" },
+        { "a - -b; c + +d; e - --f;", "a- -b;c+ +d;e- --f;" },
+        { "1 .toString(); 1.5.toFixed();", "1 .toString();1.5.toFixed();" },
+        { "x = a / /re/g;", "x=a/ /re/g;" },
+        { "if (a < !--b) {}", "if(a< !--b){}" },
+
+        // regular expression followed by identifier : would be read as flags
+        { "x = /re/ instanceof RegExp;", "x=/re/ instanceof RegExp;" },
+        { "x = /re/ in o;", "x=/re/ in o;" },
+        { "x = /re/g in o;", "x=/re/g in o;" },
+        { "x = /re/ /* comment */ instanceof RegExp;", "x=/re/ instanceof RegExp;" },
+        { "x = /[/]/.test(s);", "x=/[/]/.test(s);" },
+
+        // regular expression after condition of statement
+        { "if (a) /  b/.test(s);", "if(a)/  b/.test(s);" },
+        { "while (x) /'/.test(s);", "while(x)/'/.test(s);" },
+        { "for (i = f(a); i; i--) /  b/.exec(s);", "for(i=f(a);i;i--)/  b/.exec(s);" },
+        { "if ((a) / 2) /  b/.test(s);", "if((a)/2)/  b/.test(s);" },
+
+        // division is not a regular expression
+        { "x = a / b / c;", "x=a/b/c;" },
+        { "x = (a) / 2 / (b);", "x=(a)/2/(b);" },
+        { "x = f(a) / 2 / g(b);", "x=f(a)/2/g(b);" },
+        { "x = a.if / 2 / b;", "x=a.if/2/b;" },
+
+        // literals are kept as is
+        { "s = 'a  b' + \"c // d\";", "s='a  b'+\"c // d\";" },
+        { "s = `a ${ `b ${c}` }  d`;", "s=`a ${ `b ${c}` }  d`;" },
+
+        // comments
+        { "a = 1; // comment\nb = 2;", "a=1;b=2;" },
+        { "a /* comment */ = 1;", "a=1;" },
+        { "var/* comment */a;", "var a;" },
+
+        // line breaks kept for automatic semicolon insertion
+        { "function f() {\n  return\n  x;\n}", "function f(){return\nx;}" },
+        { "a\n++b", "a\n++b" },
+        { "a\n(b)", "a\n(b)" },
+        { "a = {\n  b: 1\n};", "a={b:1};" },
+    };
+
+    public static void main(String[] args) {
+        int failures = 0;
+
+        for (String[] check : CASES) {
+            String minified = ExtJsMinifier.minify(check[0]);
+            String mapped = ExtJsMinifier.minify(check[0], new ExtSourceMap.Mappings());
+
+            if (!minified.equals(check[1]) || !mapped.equals(check[1])) {
+                System.err.println("FAILED : " + check[0] + "\n  expected : " + check[1] + "\n  minified : " + minified);
+                failures++;
+            }
+        }
+
+        System.out.println((CASES.length - failures) + " of " + CASES.length + " minifier checks passed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package net.prime.extapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+
+/**
+ * Alias index
+ *
+ *   project-wide index of ext class names by alias and alternate class name :
+ *   'widget.boxselect' : 'Ext.ux.form.field.BoxSelect'
+ *
+ * - js files of app folder and configured paths (of included ext classes) are scanned
+ *   for 'Ext.define', 'alias' and 'alternateClassName'
+ * - aliases belong to the preceding 'Ext.define' of the file
+ * - only ext classes defined in their own file (the path builds resolve) are indexed :
+ *   output files of other builds and concatenated copies do not override source files
+ * - output files of this build (output file, bundles, hashed names) are not scanned
+ * - updates rescan files changed on disk only
+ *
+ */
+public class ExtAliasIndex {
+
+    private static final String DEFINE = "Ext.define";
+    private static final String[] TYPES = { DEFINE, "alias", "alternateClassName" };
+
+    private ExtappMain main = null;
+    private ExtappConfig config = null;
+    private ExtDependencyScanner scanner = new ExtDependencyScanner(TYPES,
+            new boolean[] { false, true, true }, new boolean[] { true, false, false });
+
+    // web path : scanned file
+    private Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    // alias or alternate class name : ext class
+    private Map<String, String> extClasses = new HashMap<String, String>();
+
+    static class Entry {
+        long size;
+        long lastModified;
+        List<String[]> names = new ArrayList<String[]>(); // alias, ext class
+    }
+
+    /**
+     * Creates a new alias index
+     *
+     * @param ExtappMain main
+     * @param ExtappConfig config
+     */
+    ExtAliasIndex(ExtappMain main, ExtappConfig config) {
+        this.main = main;
+        this.config = config;
+    }
+
+    /**
+     * Resolve reference to ext class
+     *
+     * - aliases and alternate class names by index
+     * - other names starting with upper case are ext class names ('Demo.store.Main'),
+     *   unknown aliases ('widget.panel') and wildcards ('Demo.view.*') are not resolved
+     *
+     * @param String reference
+     * @return String ext class or null
+     */
+    public String resolve(String reference) {
+        String extClass = extClasses.get(reference);
+
+        if (extClass == null && Character.isUpperCase(reference.charAt(0)) && reference.indexOf('*') == -1) {
+            extClass = reference;
+        }
+        return extClass;
+    }
+
+    public int size() {
+        return extClasses.size();
+    }
+
+    /**
+     * Update index
+     *
+     *   scans new and changed files, drops removed files
+     *
+     * @return Boolean true if index was changed
+     * @throws IOException
+     */
+    public Boolean update() throws IOException {
+        Map<String, File> files = findFiles();
+        final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+        Boolean changed = entries.keySet().retainAll(files.keySet());
+
+        for (Map.Entry<String, File> file : files.entrySet()) {
+            final String webPath = file.getKey();
+            final File path = file.getValue();
+            Entry entry = entries.get(webPath);
+
+            if (entry == null || entry.size != path.length() || entry.lastModified != path.lastModified()) {
+                tasks.add(new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        entries.put(webPath, scan(path, webPath));
+                    }
+                });
+            }
+        }
+
+        if (!tasks.isEmpty()) {
+            ForkJoinPool pool = this.main.getPool() != null ? this.main.getPool() : new ForkJoinPool(this.main.getThreads());
+            try {
+                pool.invoke(new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        invokeAll(tasks);
+                    }
+                });
+            } finally {
+                if (pool != this.main.getPool()) {
+                    pool.shutdown();
+                }
+            }
+        }
+
+        if (changed || !tasks.isEmpty()) {
+            Map<String, String> extClasses = indexExtClasses();
+            changed = !extClasses.equals(this.extClasses);
+            this.extClasses = extClasses;
+        }
+        return changed;
+    }
+
+    /**
+     * Scan file for aliases
+     *
+     *   removed or unreadable file has no aliases (build reports files it uses),
+     *   it is scanned again when changed
+     *
+     * @param File file
+     * @param String webPath
+     * @return Entry
+     */
+    private Entry scan(File file, String webPath) {
+        ExtSourceFile sourceFile = new ExtSourceFile(null, file.getPath(), webPath);
+        Entry entry = new Entry();
+        String extClass = null;
+        CharSequence code = null;
+
+        entry.size = sourceFile.getSize();
+        entry.lastModified = sourceFile.getLastModified();
+
+        try {
+            code = sourceFile.isFile() ? sourceFile.getCode() : null;
+        } catch (IllegalStateException e) {
+            code = null;
+        }
+
+        if (code != null) {
+            for (String[] found : scanner.scanInOrder(code)) {
+                if (found[0].equals(DEFINE)) {
+                    extClass = found[1];
+                } else if (extClass != null) {
+                    entry.names.add(new String[] { found[1], extClass });
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Index ext classes of scanned files
+     *
+     *   files in web path order : the first file declaring an alias wins,
+     *   aliases of other ext classes are reported once,
+     *   aliases of ext classes defined outside their own file are skipped
+     *
+     * @return Map<String, String>
+     */
+    private Map<String, String> indexExtClasses() {
+        Map<String, String> extClasses = new HashMap<String, String>();
+        Set<String> reported = new HashSet<String>();
+
+        for (Map.Entry<String, Entry> entry : new TreeMap<String, Entry>(entries).entrySet()) {
+            String webPath = entry.getKey().replaceAll("/+", "/");
+
+            for (String[] name : entry.getValue().names) {
+                String extClass = extClasses.get(name[0]);
+
+                if (!webPath.equals(config.getExtClassPath(name[1]).replaceAll("/+", "/"))) {
+                    continue; // not the file builds load for ext class
+                } else if (extClass == null) {
+                    extClasses.put(name[0], name[1]);
+                } else if (!extClass.equals(name[1]) && reported.add(name[0])) {
+                    this.main.printMsg("Alias '" + name[0] + "' of '" + name[1] + "' (" + entry.getKey()
+                            + ") is already used by '" + extClass + "'\n", "warning");
+                    this.main.warnings++;
+                }
+            }
+        }
+        return extClasses;
+    }
+
+    /**
+     * Get patterns of output files written by build
+     *
+     *   output file and bundles, with or without content hash in file name,
+     *   none if source file is overwritten by output
+     *
+     * @return List<Pattern> absolute paths
+     */
+    private List<Pattern> getOutputPatterns() {
+        List<Pattern> patterns = new ArrayList<Pattern>();
+        List<String> filepaths = new ArrayList<String>();
+
+        if (this.main.getOutputFilepath().equals(this.main.getSourceFilepath())) {
+            return patterns;
+        }
+
+        filepaths.add(this.main.getOutputFilepath());
+        for (String bundle : config.getBundles().keySet()) {
+            filepaths.add(this.main.getBundleFilepath(bundle));
+        }
+
+        for (String filepath : filepaths) {
+            String path = new File(filepath).getAbsoluteFile().toPath().normalize().toString().replace(File.separatorChar, '/');
+            int i = path.lastIndexOf('.');
+
+            patterns.add(i > path.lastIndexOf('/')
+                    ? Pattern.compile(Pattern.quote(path.substring(0, i)) + "(\\.[0-9a-f]+)?" + Pattern.quote(path.substring(i)))
+                    : Pattern.compile(Pattern.quote(path) + "(\\.[0-9a-f]+)?"));
+        }
+        return patterns;
+    }
+
+    /**
+     * Find js files of app folder and configured paths
+     *
+     *   paths of excluded ext classes and output files of build are skipped
+     *
+     * @return Map<String, File> web path : file
+     * @throws IOException
+     */
+    private Map<String, File> findFiles() throws IOException {
+        final Map<String, File> files = new HashMap<String, File>();
+        final List<Pattern> outputPatterns = getOutputPatterns();
+        List<String> roots = new ArrayList<String>();
+
+        roots.add(config.getAppFolder());
+        for (Map.Entry<String, String> path : config.getConfiguredPaths().entrySet()) {
+            ExtNamespaceTrie.Node<Boolean> namespace = config.getExtClassesTrie().find(path.getKey());
+            if (namespace == null || namespace.getValue()) {
+                roots.add(path.getValue());
+            }
+        }
+
+        for (String root : roots) {
+            final String rootWebPath = root.endsWith("/") ? root.substring(0, root.length() - 1) : root;
+            final Path rootPath = new File(this.main.getPath(rootWebPath)).toPath();
+
+            if (Files.isRegularFile(rootPath)) {
+                if (rootWebPath.endsWith(".js") && !isOutputFile(outputPatterns, rootPath)) {
+                    files.put(rootWebPath, rootPath.toFile());
+                }
+            } else if (Files.isDirectory(rootPath)) {
+                Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".js")
+                                && !isOutputFile(outputPatterns, file)) {
+                            String relative = rootPath.relativize(file).toString().replace(File.separatorChar, '/');
+                            files.put(rootWebPath + "/" + relative, file.toFile());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        }
+        return files;
+    }
+
+    private static Boolean isOutputFile(List<Pattern> outputPatterns, Path file) {
+        String path = file.toAbsolutePath().normalize().toString().replace(File.separatorChar, '/');
+
+        for (Pattern pattern : outputPatterns) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,299 @@
+package net.prime.extapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+/**
+ * Artifact cache
+ *
+ *   content-addressed store of finished output files : {cache dir}/{key[0..1]}/{key}/
+ *   with index.json and the output files (bundles, source maps, gzipped files, manifests)
+ *
+ * - key is built from build options, config, entry and output files and the content hashes
+ *   of all source files in the dependency graph : same key builds the same outputs
+ * - files are stored by web path (relative to base path), so checkouts in other folders,
+ *   branches and CI agents (shared mount) can use the same cache
+ * - entries are written to a temporary folder and renamed, concurrent builds never read partial entries
+ * - restore hard-links cached files (or copies them on other file systems), output files are replaced atomically
+ * - cached files are read-only (hard-linked output files too), source file used as output file is copied
+ * - cached files are verified (size and MD5) and paths must stay under base path : broken entries are removed
+ *
+ */
+public class ExtArtifactCache {
+
+    // outputs of the same sources changed : bump to drop entries of previous versions
+    static final int VERSION = 1;
+
+    private static final String INDEX = "index.json";
+    private static Gson gs = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private ExtappMain main = null;
+    private File dir = null;
+
+    static class Index {
+        int version = VERSION;
+        String output; // web path of output file (named by content hash if enabled)
+        List<Item> files = new ArrayList<Item>();
+    }
+
+    static class Item {
+        String path; // web path
+        String name; // cached file name
+        long size;
+        String md5;
+    }
+
+    /**
+     * Creates a new artifact cache
+     *
+     * @param ExtappMain main
+     * @param String dirpath cache folder
+     */
+    ExtArtifactCache(ExtappMain main, String dirpath) {
+        this.main = main;
+        this.dir = new File(dirpath).getAbsoluteFile();
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public File getEntryDir(String key) {
+        return new File(dir, key.substring(0, 2) + "/" + key);
+    }
+
+    /**
+     * Restore output files of cache entry
+     *
+     *   output files with the same contents are not replaced
+     *
+     * @param String key
+     * @return String web path of output file, or null if entry is not cached
+     * @throws IOException
+     */
+    public String restore(String key) throws IOException {
+        File entryDir = getEntryDir(key);
+        File indexFile = new File(entryDir, INDEX);
+        Index index = null;
+
+        if (!indexFile.isFile()) {
+            return null;
+        }
+
+        try {
+            index = gs.fromJson(FileUtils.readFileToString(indexFile, ExtappMain.charset), Index.class);
+        } catch (JsonParseException e) {
+            index = null;
+        }
+        if (index == null || index.version != VERSION || index.output == null || getTarget(index.output) == null
+                || index.files == null || !verify(entryDir, index)) {
+            remove(entryDir);
+            this.main.printMsg("Broken artifact cache entry removed : " + entryDir.getPath() + "\n", "warning");
+            this.main.warnings++;
+            return null;
+        }
+
+        // source file is edited in place : linked file would change cached file
+        Boolean link = !this.main.getOutputFilepath().equals(this.main.getSourceFilepath());
+
+        for (Item item : index.files) {
+            File cached = new File(entryDir, item.name);
+            File target = getTarget(item.path);
+
+            if (target.isFile() && target.length() == item.size && FileUtils.contentEquals(cached, target)) {
+                this.main.printMsg("Unchanged : " + target.getName());
+                continue;
+            }
+
+            target.getParentFile().mkdirs();
+            File tmpFile = File.createTempFile(target.getName() + ".", ".tmp", target.getParentFile());
+            try {
+                tmpFile.delete();
+                if (!link || !createLink(tmpFile, cached)) {
+                    Files.copy(cached.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    tmpFile.setWritable(true);
+                }
+                tmpFile.setLastModified(System.currentTimeMillis());
+                ExtOutputWriter.move(tmpFile, target);
+            } finally {
+                tmpFile.delete();
+            }
+            this.main.printMsg("Restored : " + target.getName());
+        }
+
+        entryDir.setLastModified(System.currentTimeMillis()); // last use, for pruning by age
+        return index.output;
+    }
+
+    /**
+     * Create hard link
+     *
+     * @param File link
+     * @param File file
+     * @return Boolean false if file system does not support hard links (or file is on other file system)
+     */
+    private static Boolean createLink(File link, File file) {
+        try {
+            Files.createLink(link.toPath(), file.toPath());
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            link.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Verify cached files
+     *
+     * @param File entryDir
+     * @param Index index
+     * @return Boolean true if all files have their size and MD5 and are restored under base path
+     * @throws IOException
+     */
+    private Boolean verify(File entryDir, Index index) throws IOException {
+        for (Item item : index.files) {
+            if (item.path == null || item.name == null || getTarget(item.path) == null) {
+                return false;
+            }
+            File cached = new File(entryDir, item.name);
+            if (!cached.getParentFile().equals(entryDir) || !cached.isFile() || cached.length() != item.size || !getMd5(cached).equals(item.md5)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Store output files as cache entry
+     *
+     *   entry stored by another build meanwhile is kept
+     *
+     * @param String key
+     * @param File output output file
+     * @param List<File> files all output files (including output file)
+     * @throws IOException
+     */
+    public void store(String key, File output, List<File> files) throws IOException {
+        File entryDir = getEntryDir(key);
+        if (new File(entryDir, INDEX).isFile()) {
+            return;
+        }
+
+        entryDir.getParentFile().mkdirs();
+        File tmpDir = Files.createTempDirectory(entryDir.getParentFile().toPath(), key + ".").toFile();
+
+        try {
+            Index index = new Index();
+            index.output = getWebPath(output);
+
+            for (File file : files) {
+                Item item = new Item();
+                item.path = getWebPath(file);
+                item.name = index.files.size() + "-" + file.getName();
+
+                File cached = new File(tmpDir, item.name);
+                Files.copy(file.toPath(), cached.toPath());
+                item.size = cached.length();
+                item.md5 = getMd5(cached);
+                cached.setReadOnly();
+                index.files.add(item);
+            }
+            FileUtils.writeStringToFile(new File(tmpDir, INDEX), gs.toJson(index) + "\n", ExtappMain.charset);
+
+            try {
+                Files.move(tmpDir.toPath(), entryDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                if (!new File(entryDir, INDEX).isFile()) {
+                    throw e;
+                }
+            }
+        } finally {
+            remove(tmpDir);
+        }
+    }
+
+    /**
+     * Remove cache entry folder
+     *
+     *   read-only files are made writable first (required on Windows)
+     *
+     * @param File entryDir
+     */
+    private static void remove(File entryDir) {
+        File[] files = entryDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.setWritable(true);
+            }
+        }
+        FileUtils.deleteQuietly(entryDir);
+    }
+
+    /**
+     * Get file of web path
+     *
+     *   index of shared cache is not trusted : paths like '/../../x' are rejected
+     *
+     * @param String webPath
+     * @return File or null if file is not under base path
+     */
+    private File getTarget(String webPath) {
+        Path root = new File(this.main.getPath("/")).getAbsoluteFile().toPath().normalize();
+        Path path = new File(this.main.getPath(webPath)).getAbsoluteFile().toPath().normalize();
+
+        return path.startsWith(root) && !path.equals(root) ? path.toFile() : null;
+    }
+
+    /**
+     * Get web path of file
+     *
+     *   example: {basePath}/portal/app-output.js > /portal/app-output.js
+     *
+     * @param File file
+     * @return String
+     */
+    private String getWebPath(File file) {
+        Path root = new File(this.main.getPath("/")).getAbsoluteFile().toPath().normalize();
+        Path path = file.getAbsoluteFile().toPath().normalize();
+
+        return "/" + root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static String getMd5(File file) throws IOException {
+        InputStream in = null;
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[1 << 16];
+            int n;
+
+            in = new FileInputStream(file);
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+            return String.format("%032x", new BigInteger(1, digest.digest()));
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.prime.extapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Build client
+ *
+ *   sends build requests to build server on localhost and prints build messages
+ *
+ */
+public class ExtBuildClient {
+
+    private int port = 0;
+
+    /**
+     * Creates a new build client
+     *
+     * @param int port build server port
+     */
+    ExtBuildClient(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Get query of parameters
+     *
+     *   parameters without value are skipped
+     *
+     * @param Map<String, String> params
+     * @return String
+     * @throws UnsupportedEncodingException
+     */
+    public static String getQuery(Map<String, String> params) throws UnsupportedEncodingException {
+        StringBuilder query = new StringBuilder();
+
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (param.getValue() != null) {
+                query.append(query.length() > 0 ? "&" : "");
+                query.append(URLEncoder.encode(param.getKey(), ExtappMain.charset) + "="
+                        + URLEncoder.encode(param.getValue(), ExtappMain.charset));
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * Request build
+     *
+     * @param Map<String, String> params build parameters (like command line options)
+     * @return Boolean true if app was built (build errors are printed like in local builds)
+     * @throws IOException
+     */
+    public Boolean build(Map<String, String> params) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + port + "/build?" + getQuery(params));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        InputStream stream = null;
+
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.getOutputStream().close();
+
+            int status = connection.getResponseCode();
+            stream = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (stream != null) {
+                System.err.print(IOUtils.toString(stream, ExtappMain.charset));
+            }
+
+            return status == 200;
+        } finally {
+            IOUtils.closeQuietly(stream);
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package net.prime.extapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Build report
+ *
+ * - phase timings and counters of one app build
+ * - read, scan and resolve times are summed over loader threads
+ * - written as JSON or CSV (by report file extension), one report per app
+ *
+ */
+public class ExtBuildReport {
+
+    private static final int SLOWEST_FILES = 10;
+
+    private static Gson gs = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private static final String[] PHASES = { "config", "load", "read", "scan", "resolve", "link", "rank", "write", "total" };
+    private static final String[] COUNTERS = { "files", "bytesRead", "bytesWritten", "cacheHits", "cacheMisses", "minifyHits", "minifyMisses",
+            "artifactHits", "maxRank", "errors", "warnings", "threads" };
+
+    private String app = null;
+
+    // nanos and counters, keys are fixed : values are updated by loader threads
+    private Map<String, AtomicLong> phases = new LinkedHashMap<String, AtomicLong>();
+    private Map<String, AtomicLong> counters = new LinkedHashMap<String, AtomicLong>();
+    private Map<String, Long> scanTimes = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Report file contents
+     *
+     */
+    static class Report {
+        List<App> apps = new ArrayList<App>();
+    }
+
+    static class App {
+        String app;
+        Map<String, Double> phases = new LinkedHashMap<String, Double>(); // milliseconds
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        List<SlowFile> slowestFiles = new ArrayList<SlowFile>();
+    }
+
+    static class SlowFile {
+        String file;
+        Double scan; // milliseconds
+
+        SlowFile(String file, Double scan) {
+            this.file = file;
+            this.scan = scan;
+        }
+    }
+
+    /**
+     * Creates a new build report
+     *
+     * @param String app app name (config file)
+     */
+    ExtBuildReport(String app) {
+        this.app = app;
+
+        for (String phase : PHASES) {
+            phases.put(phase, new AtomicLong());
+        }
+        for (String counter : COUNTERS) {
+            counters.put(counter, new AtomicLong());
+        }
+    }
+
+    /**
+     * Add time to phase
+     *
+     * @param String phase
+     * @param long nanos
+     */
+    public void addTime(String phase, long nanos) {
+        phases.get(phase).addAndGet(nanos);
+    }
+
+    public long getTime(String phase) {
+        return phases.get(phase).get();
+    }
+
+    public void add(String counter, long value) {
+        counters.get(counter).addAndGet(value);
+    }
+
+    public void set(String counter, long value) {
+        counters.get(counter).set(value);
+    }
+
+    /**
+     * Add file read on loader thread
+     *
+     * @param long bytes
+     * @param long nanos
+     */
+    public void addRead(long bytes, long nanos) {
+        add("bytesRead", bytes);
+        addTime("read", nanos);
+    }
+
+    /**
+     * Add file scan on loader thread
+     *
+     * @param String webPath
+     * @param long nanos
+     */
+    public void addScan(String webPath, long nanos) {
+        scanTimes.put(webPath, nanos);
+        addTime("scan", nanos);
+    }
+
+    private static Double toMillis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    /**
+     * Get report of app
+     *
+     * @return App
+     */
+    private App toApp() {
+        App report = new App();
+        List<Map.Entry<String, Long>> files = new ArrayList<Map.Entry<String, Long>>(scanTimes.entrySet());
+
+        report.app = app;
+        for (Map.Entry<String, AtomicLong> phase : phases.entrySet()) {
+            report.phases.put(phase.getKey(), toMillis(phase.getValue().get()));
+        }
+        for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+            report.counters.put(counter.getKey(), counter.getValue().get());
+        }
+
+        Collections.sort(files, new Comparator<Map.Entry<String, Long>>() {
+            public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+        for (Map.Entry<String, Long> file : files.subList(0, Math.min(files.size(), SLOWEST_FILES))) {
+            report.slowestFiles.add(new SlowFile(file.getKey(), toMillis(file.getValue())));
+        }
+        return report;
+    }
+
+    /**
+     * Write reports to file
+     *
+     *   '.csv' files have rows : app,section,name,value
+     *   other files are JSON : { apps : [ { app, phases, counters, slowestFiles } ] }
+     *
+     * @param String filepath
+     * @param List<ExtBuildReport> reports
+     * @throws IOException
+     */
+    public static void write(String filepath, List<ExtBuildReport> reports) throws IOException {
+        Report report = new Report();
+        for (ExtBuildReport appReport : reports) {
+            report.apps.add(appReport.toApp());
+        }
+
+        ExtOutputWriter writer = new ExtOutputWriter(filepath, ExtappMain.charset);
+        try {
+            writer.write(filepath.toLowerCase().endsWith(".csv") ? toCsv(report) : gs.toJson(report) + "\n");
+            writer.commit();
+        } catch (IOException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    private static String toCsv(Report report) {
+        StringBuilder csv = new StringBuilder("app,section,name,value\n");
+
+        for (App app : report.apps) {
+            String prefix = csvValue(app.app) + ",";
+            for (Map.Entry<String, Double> phase : app.phases.entrySet()) {
+                csv.append(prefix + "phase," + phase.getKey() + "," + phase.getValue() + "\n");
+            }
+            for (Map.Entry<String, Long> counter : app.counters.entrySet()) {
+                csv.append(prefix + "counter," + counter.getKey() + "," + counter.getValue() + "\n");
+            }
+            for (SlowFile file : app.slowestFiles) {
+                csv.append(prefix + "slowestFile," + csvValue(file.file) + "," + file.scan + "\n");
+            }
+        }
+        return csv.toString();
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.indexOf(',') != -1 || value.indexOf('"') != -1
+                ? "\"" + value.replace("\"", "\"\"") + "\""
+                : value;
+    }
+}
@@ -0,0 +1,326 @@
+package net.prime.extapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Build server
+ *
+ *   long-running server on localhost : apps stay loaded between builds,
+ *   so a build request only reloads source files changed on disk
+ *
+ * - POST /build?config=..&source=..&output=.. : build output file, responds with build messages
+ * - POST /bundle?config=..&source=..&output=.. : build output file, responds with output file
+ * - POST /stop : stop server
+ *
+ *   other parameters : basePath, minify, delimiter, sourceMap, contentHash, gzip, verbose, report, artifactCache
+ *   (like command line options)
+ *   apps are kept by parameters and reloaded when config file is changed
+ *
+ *   requests from web pages are rejected (any web page can send requests to localhost) :
+ *   only POST, no Origin header, Host must be 127.0.0.1:port or localhost:port,
+ *   output and report files must be under base path
+ *
+ */
+public class ExtBuildServer {
+
+    private int port = 0;
+    private Integer threads = 1;
+
+    private HttpServer server = null;
+    private ExecutorService executor = null;
+
+    // shared by all apps of server
+    private ForkJoinPool pool = null;
+    private ExtScanCache scanCache = new ExtScanCache();
+    private Map<String, ExtDependencyCache> dependencyCaches = new HashMap<String, ExtDependencyCache>();
+    private Map<String, ExtTransformCache> transformCaches = new HashMap<String, ExtTransformCache>();
+
+    private Map<String, App> apps = new ConcurrentHashMap<String, App>();
+
+    /**
+     * Loaded app
+     *
+     */
+    static class App {
+        ExtappMain main;
+        ExtFileCombiner combiner;
+        long configLastModified;
+    }
+
+    /**
+     * Creates a new build server
+     *
+     * @param int port
+     * @param Integer threads
+     */
+    ExtBuildServer(int port, Integer threads) {
+        this.port = port;
+        this.threads = threads;
+    }
+
+    /**
+     * Start server
+     *
+     *   requests are handled on server threads, builds of one app run one at a time
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        pool = new ForkJoinPool(threads);
+        executor = Executors.newFixedThreadPool(threads);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+
+        server.createContext("/build", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (checkRequest(exchange)) {
+                    handleBuild(exchange, false);
+                }
+            }
+        });
+        server.createContext("/bundle", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (checkRequest(exchange)) {
+                    handleBuild(exchange, true);
+                }
+            }
+        });
+        server.createContext("/stop", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (checkRequest(exchange)) {
+                    respond(exchange, 200, "text/plain", "Build server stopped\n".getBytes(ExtappMain.charset));
+                    stop();
+                }
+            }
+        });
+
+        server.start();
+        System.err.println("\n[INFO] Build server : http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/build\n");
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    /**
+     * Check request is sent by a local tool, not by a web page
+     *
+     * - POST only : web pages can not send simple requests with other methods unnoticed
+     * - no Origin header : sent by browsers with POST requests of web pages
+     * - Host is 127.0.0.1:port or localhost:port : host name of DNS rebinding is different
+     *
+     *   rejected requests are responded
+     *
+     * @param HttpExchange exchange
+     * @return Boolean
+     * @throws IOException
+     */
+    private Boolean checkRequest(HttpExchange exchange) throws IOException {
+        int serverPort = server.getAddress().getPort();
+        String host = exchange.getRequestHeaders().getFirst("Host");
+
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "text/plain", "[ERROR] POST request is required\n".getBytes(ExtappMain.charset));
+            return false;
+        }
+        if (exchange.getRequestHeaders().containsKey("Origin")
+                || !(("127.0.0.1:" + serverPort).equals(host) || ("localhost:" + serverPort).equals(host))) {
+            respond(exchange, 403, "text/plain", "[ERROR] Request is not allowed\n".getBytes(ExtappMain.charset));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check file is under base path after normalization
+     *
+     * @param String basePath
+     * @param String filepath
+     * @return Boolean
+     */
+    private static Boolean isUnderBasePath(String basePath, String filepath) {
+        Path base = new File(basePath.isEmpty() ? "/" : basePath).getAbsoluteFile().toPath().normalize();
+        Path path = new File(filepath).getAbsoluteFile().toPath().normalize();
+
+        return path.startsWith(base) && !path.equals(base);
+    }
+
+    /**
+     * Parse query parameters
+     *
+     * @param String query
+     * @return Map<String, String>
+     * @throws UnsupportedEncodingException
+     */
+    public static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<String, String>();
+
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int i = param.indexOf('=');
+                if (i > 0) {
+                    params.put(URLDecoder.decode(param.substring(0, i), ExtappMain.charset),
+                            URLDecoder.decode(param.substring(i + 1), ExtappMain.charset));
+                } else if (param.length() > 0) {
+                    params.put(URLDecoder.decode(param, ExtappMain.charset), "true");
+                }
+            }
+        }
+        return params;
+    }
+
+    private static Boolean isEnabled(Map<String, String> params, String name, Boolean defaultValue) {
+        String value = params.get(name);
+        return value != null ? "true".equals(value) : defaultValue;
+    }
+
+    /**
+     * Get loaded app or load it
+     *
+     *   app is reloaded when config file is changed
+     *
+     * @param Map<String, String> params
+     * @return App
+     */
+    private App getApp(Map<String, String> params) {
+        String basePath = params.containsKey("basePath") ? params.get("basePath") : "";
+        String key = basePath + "|" + params.get("config") + "|" + params.get("source") + "|" + params.get("output")
+                + "|" + isEnabled(params, "minify", false) + "|" + isEnabled(params, "delimiter", false)
+                + "|" + isEnabled(params, "sourceMap", false) + "|" + isEnabled(params, "contentHash", false)
+                + "|" + isEnabled(params, "gzip", false)
+                + "|" + isEnabled(params, "verbose", true);
+
+        synchronized (apps) {
+            App app = apps.get(key);
+            ExtappMain main = new ExtappMain(isEnabled(params, "verbose", true), isEnabled(params, "delimiter", false),
+                    isEnabled(params, "minify", false), threads, basePath, params.get("config"), params.get("source"),
+                    params.get("output"));
+            long configLastModified = new File(main.getPath(params.get("config"))).lastModified();
+
+            if (app == null || app.configLastModified != configLastModified) {
+                main.setSourceMap(isEnabled(params, "sourceMap", false));
+                main.setContentHash(isEnabled(params, "contentHash", false));
+                main.setGzip(isEnabled(params, "gzip", false));
+                main.setExitOnError(false);
+                main.setPool(pool);
+                main.setScanCache(scanCache);
+                main.setDependencyCaches(dependencyCaches);
+                main.setTransformCaches(transformCaches);
+
+                app = new App();
+                app.main = main;
+                app.configLastModified = configLastModified;
+                apps.put(key, app);
+            }
+            return app;
+        }
+    }
+
+    /**
+     * Build app of request
+     *
+     * - first build loads all source files
+     * - next builds reload source files changed on disk and relink dependency graph in memory
+     *
+     * @param HttpExchange exchange
+     * @param Boolean bundle respond with output file instead of build messages
+     * @throws IOException
+     */
+    private void handleBuild(HttpExchange exchange, Boolean bundle) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+        if (params.get("config") == null || params.get("source") == null) {
+            respond(exchange, 400, "text/plain", "[ERROR] config and source parameters are required\n".getBytes(ExtappMain.charset));
+            return;
+        }
+
+        String basePath = params.containsKey("basePath") ? params.get("basePath") : "";
+        String output = params.containsKey("output") ? params.get("output") : params.get("source"); // source is overwritten
+        String report = params.get("report");
+
+        if (!isUnderBasePath(basePath, (basePath + "/" + output).replaceAll("\\//", "/"))
+                || (report != null && !isUnderBasePath(basePath, report))) {
+            respond(exchange, 403, "text/plain", "[ERROR] output and report files must be under base path\n".getBytes(ExtappMain.charset));
+            return;
+        }
+
+        App app = getApp(params);
+        int status = 200;
+        byte[] body;
+
+        synchronized (app) {
+            ExtappMain main = app.main;
+
+            try {
+                if (!new File(main.getPath(params.get("config"))).isFile()) {
+                    throw new IOException("Config file not found : " + main.getPath(params.get("config")));
+                }
+
+                main.setLog(new PrintStream(log, true, ExtappMain.charset));
+                main.setReportFilename(params.get("report"));
+                main.setArtifactCacheDir(params.get("artifactCache"));
+
+                if (app.combiner == null) {
+                    main.prepare();
+                    app.combiner = new ExtFileCombiner(main, main.getConfig());
+                    app.combiner.init();
+                } else {
+                    app.combiner.rebuild(app.combiner.getChangedFiles());
+                }
+            } catch (Exception e) {
+                log.write(("\n[ERROR] " + e.getMessage() + "\n").getBytes(ExtappMain.charset));
+                apps.values().remove(app); // reload on next request
+                status = 500;
+            }
+
+            exchange.getResponseHeaders().set("X-Extapp-Errors", String.valueOf(main.errors));
+            exchange.getResponseHeaders().set("X-Extapp-Warnings", String.valueOf(main.warnings));
+
+            if (bundle && status == 200) {
+                body = Files.readAllBytes(app.combiner.getOutputFile().toPath());
+            } else {
+                body = log.toByteArray();
+            }
+        }
+
+        respond(exchange, status, bundle && status == 200 ? "application/javascript" : "text/plain", body);
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=" + ExtappMain.charset);
+        exchange.sendResponseHeaders(status, body.length);
+
+        OutputStream stream = exchange.getResponseBody();
+        try {
+            stream.write(body);
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package net.prime.extapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Binary cache file of source file entries
+ *
+ *   magic, version, fingerprint, entry count, then web path and entry of each source file
+ *   whole cache is dropped when version or fingerprint differ
+ *
+ * - cache shared by several builds is loaded once, entries are kept in memory
+ * - only entries used by builds of this run are saved (removed source files are dropped)
+ * - saved when entries were changed or used entries differ from the saved ones
+ * - written to temporary file and renamed
+ *
+ */
+public abstract class ExtCacheFile<E> {
+
+    private int magic = 0;
+    private int version = 0;
+    private File file = null;
+    private String fingerprint = null;
+    private volatile Boolean changed = false;
+    private Boolean loaded = false;
+    private int savedEntries = 0; // entries in cache file
+
+    private Map<String, E> entries = new ConcurrentHashMap<String, E>();
+    private Map<String, E> usedEntries = new ConcurrentHashMap<String, E>();
+
+    private AtomicInteger hits = new AtomicInteger();
+    private AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Creates a new cache
+     *
+     * @param int magic file type
+     * @param int version entry format
+     * @param String filepath cache file
+     * @param String fingerprint settings the entries depend on
+     */
+    ExtCacheFile(int magic, int version, String filepath, String fingerprint) {
+        this.magic = magic;
+        this.version = version;
+        this.file = new File(filepath);
+        this.fingerprint = fingerprint;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    protected abstract E readEntry(DataInputStream in) throws IOException;
+
+    protected abstract void writeEntry(DataOutputStream out, E entry) throws IOException;
+
+    /**
+     * Load cache file
+     *
+     *   missing or outdated cache file leaves cache empty
+     *
+     * @throws IOException if cache file is broken (cache is empty)
+     */
+    public synchronized void load() throws IOException {
+        DataInputStream in = null;
+
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+
+            if (in.readInt() != magic || in.readInt() != version || !in.readUTF().equals(fingerprint)) {
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String webPath = in.readUTF();
+                entries.put(webPath, readEntry(in));
+            }
+            savedEntries = count;
+
+        } catch (FileNotFoundException e) {
+            // no cache yet
+        } catch (IOException e) {
+            entries.clear();
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Save used entries to cache file
+     *
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        if (!changed && usedEntries.size() == savedEntries) {
+            return;
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+        DataOutputStream out = null;
+
+        try {
+            changed = false; // entries put while saving are saved next time
+            Map<String, E> saved = new ConcurrentHashMap<String, E>(usedEntries);
+
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeUTF(fingerprint);
+            out.writeInt(saved.size());
+
+            for (Map.Entry<String, E> entry : saved.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeEntry(out, entry.getValue());
+            }
+            out.close();
+
+            if (!tmpFile.renameTo(file) && !(file.delete() && tmpFile.renameTo(file))) {
+                throw new IOException("Can not write cache file : " + file.getPath());
+            }
+            savedEntries = saved.size();
+
+        } catch (IOException e) {
+            changed = true;
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(out);
+            tmpFile.delete();
+        }
+    }
+
+    protected E getEntry(String webPath) {
+        return entries.get(webPath);
+    }
+
+    /**
+     * Count cache hit and keep entry on save
+     *
+     * @param String webPath
+     * @param E entry
+     */
+    protected void hit(String webPath, E entry) {
+        usedEntries.put(webPath, entry);
+        hits.incrementAndGet();
+    }
+
+    protected void miss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Put new or changed entry
+     *
+     * @param String webPath
+     * @param E entry
+     */
+    protected void putEntry(String webPath, E entry) {
+        entries.put(webPath, entry);
+        usedEntries.put(webPath, entry);
+        changed = true;
+    }
+
+    /**
+     * Mark cache as changed (entry was updated in place)
+     *
+     */
+    protected void setChanged() {
+        changed = true;
+    }
+}
@@ -0,0 +1,148 @@
+package net.prime.extapp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Persistent dependency cache
+ *
+ *   binary file with dependent ext classes (and references) of each source file
+ *   (and line breaks kind, so unchanged files are never read)
+ *   entries are valid while file size and modification time (or content hash) are the same
+ *   whole cache is dropped when dependency settings of config differ
+ *
+ */
+public class ExtDependencyCache extends ExtCacheFile<ExtDependencyCache.Entry> {
+
+    private static final int MAGIC = 0x45585443; // EXTC
+    private static final int VERSION = 4; // entry format or scanner results changed : bump to drop dependency caches
+
+    static class Entry {
+        long size;
+        long lastModified;
+        byte[] hash;
+        boolean carriageReturns;
+        int duplicateDependencies;
+        List<String> depExtClasses;
+        List<String> references;
+    }
+
+    /**
+     * Creates a new cache
+     *
+     * @param String filepath cache file
+     * @param String fingerprint dependency settings of config
+     */
+    ExtDependencyCache(String filepath, String fingerprint) {
+        super(MAGIC, VERSION, filepath, fingerprint);
+    }
+
+    @Override
+    protected Entry readEntry(DataInputStream in) throws IOException {
+        Entry entry = new Entry();
+
+        entry.size = in.readLong();
+        entry.lastModified = in.readLong();
+        entry.hash = new byte[in.readUnsignedByte()];
+        in.readFully(entry.hash);
+        entry.carriageReturns = in.readBoolean();
+        entry.duplicateDependencies = in.readInt();
+        entry.depExtClasses = readList(in);
+        entry.references = readList(in);
+        return entry;
+    }
+
+    @Override
+    protected void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeLong(entry.size);
+        out.writeLong(entry.lastModified);
+        out.writeByte(entry.hash.length);
+        out.write(entry.hash);
+        out.writeBoolean(entry.carriageReturns);
+        out.writeInt(entry.duplicateDependencies);
+        writeList(out, entry.depExtClasses);
+        writeList(out, entry.references);
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> list = new ArrayList<String>(count);
+
+        for (int i = 0; i < count; i++) {
+            list.add(in.readUTF());
+        }
+        return list;
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String item : list) {
+            out.writeUTF(item);
+        }
+    }
+
+    /**
+     * Set cached dependent ext classes to source file
+     *
+     * - same size and modification time : file is not read
+     * - same size and content hash : modification time is updated
+     *
+     * @param ExtSourceFile sourceFile
+     * @return Boolean true on cache hit
+     */
+    public Boolean get(ExtSourceFile sourceFile) {
+        Entry entry = getEntry(sourceFile.getWebPath());
+
+        if (entry != null && entry.size == sourceFile.getSize()) {
+            Boolean hit = entry.lastModified == sourceFile.getLastModified();
+
+            if (!hit && Arrays.equals(entry.hash, sourceFile.getHash())) {
+                entry.lastModified = sourceFile.getLastModified();
+                setChanged();
+                hit = true;
+            }
+            if (hit) {
+                sourceFile.setDependentExtClasses(new ArrayList<String>(entry.depExtClasses),
+                        entry.duplicateDependencies);
+                sourceFile.setReferences(entry.references);
+                sourceFile.setCarriageReturns(entry.carriageReturns);
+                sourceFile.setHash(entry.hash);
+                hit(sourceFile.getWebPath(), entry);
+                return true;
+            }
+        }
+
+        miss();
+        return false;
+    }
+
+    /**
+     * Put dependent ext classes of source file
+     *
+     *   source files which were not read (removed meanwhile) are not cached
+     *
+     * @param ExtSourceFile sourceFile
+     */
+    public void put(ExtSourceFile sourceFile) {
+        if (sourceFile.hasCarriageReturns() == null || sourceFile.getHash() == null
+                || sourceFile.getDependentExtClasses() == null) {
+            return;
+        }
+
+        Entry entry = new Entry();
+
+        entry.size = sourceFile.getSize();
+        entry.lastModified = sourceFile.getLastModified();
+        entry.hash = sourceFile.getHash();
+        entry.carriageReturns = sourceFile.hasCarriageReturns();
+        entry.duplicateDependencies = sourceFile.getDuplicateDependencies();
+        entry.depExtClasses = new ArrayList<String>(sourceFile.getDependentExtClasses());
+        entry.references = sourceFile.getReferences();
+
+        putEntry(sourceFile.getWebPath(), entry);
+    }
+}
@@ -0,0 +1,411 @@
+package net.prime.extapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependency graph of source files
+ *
+ *   nodes are source files with int ids in the order they are added (shared source files map by web path)
+ *   edges point from source file to the source files it depends on
+ *
+ * - edges are appended while linking and compacted on first walk (CSR : offsets and targets by node id),
+ *   edges of a node keep their order
+ * - ranks are kept in an int array and copied to source files after ranking
+ * - walks use int arrays instead of maps keyed by web path
+ *
+ */
+public class ExtDependencyGraph {
+
+    private static final byte VISITING = 1;
+    private static final byte VISITED = 2;
+
+    private Map<String, ExtSourceFile> sourceFiles;
+
+    // nodes by id
+    private ExtSourceFile[] nodes = new ExtSourceFile[64];
+    private int[] ranks = new int[64];
+    private int size = 0;
+
+    // appended edges : source node id, target node id
+    private int[] edgeSources = new int[256];
+    private int[] edgeTargets = new int[256];
+    private int edges = 0;
+
+    // compacted edges : targets of node id are targets[offsets[id]] .. targets[offsets[id + 1] - 1]
+    private int[] offsets = null;
+    private int[] targets = null;
+
+    private int maxRank = 0;
+
+    ExtDependencyGraph(Map<String, ExtSourceFile> sourceFiles) {
+        this.sourceFiles = sourceFiles;
+    }
+
+    public Boolean hasSourceFile(String webPath) {
+        return sourceFiles.containsKey(webPath);
+    }
+
+    public ExtSourceFile getSourceFile(String webPath) {
+        return sourceFiles.get(webPath);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add source file node
+     *
+     * @param ExtSourceFile sourceFile
+     */
+    public void addSourceFile(ExtSourceFile sourceFile) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            ranks = Arrays.copyOf(ranks, size * 2);
+        }
+        sourceFile.setId(size);
+        nodes[size] = sourceFile;
+        ranks[size++] = 0;
+        sourceFiles.put(sourceFile.getWebPath(), sourceFile);
+    }
+
+    /**
+     * Add dependency edge
+     *
+     * @param ExtSourceFile sourceFile
+     * @param ExtSourceFile depSourceFile source file required by sourceFile
+     */
+    public void addDependency(ExtSourceFile sourceFile, ExtSourceFile depSourceFile) {
+        if (edges == edgeSources.length) {
+            edgeSources = Arrays.copyOf(edgeSources, edges * 2);
+            edgeTargets = Arrays.copyOf(edgeTargets, edges * 2);
+        }
+        edgeSources[edges] = getId(sourceFile);
+        edgeTargets[edges++] = getId(depSourceFile);
+        offsets = null;
+    }
+
+    private int getId(ExtSourceFile sourceFile) {
+        int id = sourceFile.getId();
+        if (id < 0 || id >= size || nodes[id] != sourceFile) {
+            throw new IllegalArgumentException("Source file is not a node of dependency graph : " + sourceFile.getWebPath());
+        }
+        return id;
+    }
+
+    /**
+     * Compact appended edges (counting sort by source node id)
+     *
+     */
+    private void compact() {
+        if (offsets != null && offsets.length == size + 1) {
+            return;
+        }
+
+        offsets = new int[size + 1];
+        targets = new int[edges];
+        for (int i = 0; i < edges; i++) {
+            offsets[edgeSources[i] + 1]++;
+        }
+        for (int id = 0; id < size; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+
+        int[] next = Arrays.copyOf(offsets, size);
+        for (int i = 0; i < edges; i++) {
+            targets[next[edgeSources[i]]++] = edgeTargets[i];
+        }
+    }
+
+    public List<ExtSourceFile> getDependencies(ExtSourceFile sourceFile) {
+        int id = getId(sourceFile);
+        compact();
+
+        List<ExtSourceFile> depSourceFiles = new ArrayList<ExtSourceFile>(offsets[id + 1] - offsets[id]);
+        for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+            depSourceFiles.add(nodes[targets[edge]]);
+        }
+        return depSourceFiles;
+    }
+
+    public int getMaxRank() {
+        return maxRank;
+    }
+
+    /**
+     * Rank source files by the longest dependency path from root
+     *
+     * - depth first walk collects source files in post order (each source file once)
+     * - edges closing a dependency loop (back edges) are ignored,
+     *   edges between different dependency loops are always kept
+     * - reversed post order is topological, so one pass relaxes every rank
+     *
+     * @param ExtSourceFile root
+     */
+    public void rank(ExtSourceFile root) {
+        compact();
+
+        byte[] states = new byte[size];
+        boolean[] treeEdges = new boolean[edges];
+        int[] postOrder = new int[size];
+        int[] stack = new int[size];
+        int[] stackEdges = new int[size];
+        int visited = 0;
+        int top = 0;
+
+        stack[0] = getId(root);
+        stackEdges[0] = offsets[stack[0]];
+        states[stack[0]] = VISITING;
+
+        while (top >= 0) {
+            int id = stack[top];
+            int edge = stackEdges[top];
+
+            if (edge < offsets[id + 1]) {
+                int depId = targets[edge];
+                byte state = states[depId];
+                stackEdges[top] = edge + 1;
+
+                if (state == 0) {
+                    states[depId] = VISITING;
+                    stack[++top] = depId;
+                    stackEdges[top] = offsets[depId];
+                }
+                treeEdges[edge] = state != VISITING;
+            } else {
+                states[id] = VISITED;
+                postOrder[visited++] = id;
+                top--;
+            }
+        }
+
+        maxRank = 0;
+        for (int i = visited - 1; i >= 0; i--) {
+            int id = postOrder[i];
+            int depRank = ranks[id] + 1;
+
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                if (treeEdges[edge] && ranks[targets[edge]] < depRank) {
+                    ranks[targets[edge]] = depRank;
+                }
+            }
+            if (maxRank < ranks[id]) {
+                maxRank = ranks[id];
+            }
+        }
+
+        for (int i = 0; i < visited; i++) {
+            nodes[postOrder[i]].setRank(ranks[postOrder[i]]);
+        }
+    }
+
+    /**
+     * Get source files in rank order
+     *
+     *   total order : highest rank first, equal ranks in discovery order (node id),
+     *   sorted as long keys : negated rank (high bits), node id (low bits)
+     *
+     *   discovery order depends on dependency declarations only (linking is sequential),
+     *   so the same sources give the same order on every run, thread count and JVM
+     *
+     * @return List<ExtSourceFile>
+     */
+    public List<ExtSourceFile> getRankedSourceFiles() {
+        long[] keys = new long[size];
+
+        for (int id = 0; id < size; id++) {
+            keys[id] = ((long) -ranks[id] << 32) | id;
+        }
+        Arrays.sort(keys);
+
+        List<ExtSourceFile> rankedFiles = new ArrayList<ExtSourceFile>(size);
+        for (long key : keys) {
+            rankedFiles.add(nodes[(int) key]);
+        }
+        return rankedFiles;
+    }
+
+    /**
+     * Get source files reachable from root
+     *
+     *   stop source files are neither collected nor walked through (root is always walked)
+     *
+     * @param ExtSourceFile root
+     * @param Set<ExtSourceFile> stops
+     * @return Set<ExtSourceFile> reachable source files including root
+     */
+    public Set<ExtSourceFile> getReachableSourceFiles(ExtSourceFile root, Set<ExtSourceFile> stops) {
+        compact();
+
+        boolean[] reached = new boolean[size];
+        int[] stack = new int[size];
+        int top = 0;
+
+        for (ExtSourceFile stop : stops) {
+            reached[getId(stop)] = true;
+        }
+
+        Set<ExtSourceFile> reachable = new HashSet<ExtSourceFile>();
+        stack[0] = getId(root);
+        reached[stack[0]] = true;
+        reachable.add(root);
+
+        while (top >= 0) {
+            int id = stack[top--];
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                int depId = targets[edge];
+                if (!reached[depId]) {
+                    reached[depId] = true;
+                    reachable.add(nodes[depId]);
+                    stack[++top] = depId;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Find dependency loops (Tarjan's strongly connected components)
+     *
+     * - one depth first walk from root
+     * - loop members are ordered by discovery, loops by their first member
+     * - a source file depending on itself is a loop of one
+     *
+     * @param ExtSourceFile root
+     * @return List<List<ExtSourceFile>> loops
+     */
+    public List<List<ExtSourceFile>> getDependencyLoops(ExtSourceFile root) {
+        compact();
+
+        final int[] indexes = new int[size];
+        int[] lowLinks = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] componentStack = new int[size];
+        int[] stack = new int[size];
+        int[] stackEdges = new int[size];
+        List<List<ExtSourceFile>> loops = new ArrayList<List<ExtSourceFile>>();
+        int components = 0;
+        int top = 0;
+        int index = 0;
+
+        Arrays.fill(indexes, -1);
+        stack[0] = getId(root);
+        stackEdges[0] = offsets[stack[0]];
+        indexes[stack[0]] = index;
+        lowLinks[stack[0]] = index++;
+        onStack[stack[0]] = true;
+        componentStack[components++] = stack[0];
+
+        while (top >= 0) {
+            int id = stack[top];
+            int edge = stackEdges[top];
+
+            if (edge < offsets[id + 1]) {
+                int depId = targets[edge];
+                stackEdges[top] = edge + 1;
+
+                if (indexes[depId] == -1) {
+                    indexes[depId] = index;
+                    lowLinks[depId] = index++;
+                    onStack[depId] = true;
+                    componentStack[components++] = depId;
+                    stack[++top] = depId;
+                    stackEdges[top] = offsets[depId];
+                } else if (onStack[depId]) {
+                    lowLinks[id] = Math.min(lowLinks[id], indexes[depId]);
+                }
+                continue;
+            }
+
+            top--;
+            if (top >= 0) {
+                lowLinks[stack[top]] = Math.min(lowLinks[stack[top]], lowLinks[id]);
+            }
+
+            if (lowLinks[id] == indexes[id]) {
+                List<ExtSourceFile> loop = new ArrayList<ExtSourceFile>();
+                int member;
+                do {
+                    member = componentStack[--components];
+                    onStack[member] = false;
+                    loop.add(nodes[member]);
+                } while (member != id);
+
+                if (loop.size() > 1 || hasDependency(id, id)) {
+                    Collections.reverse(loop); // discovery order
+                    loops.add(loop);
+                }
+            }
+        }
+
+        Collections.sort(loops, new Comparator<List<ExtSourceFile>>() {
+            public int compare(List<ExtSourceFile> a, List<ExtSourceFile> b) {
+                return Integer.compare(indexes[a.get(0).getId()], indexes[b.get(0).getId()]);
+            }
+        });
+
+        return loops;
+    }
+
+    private boolean hasDependency(int id, int depId) {
+        for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+            if (targets[edge] == depId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get shortest dependency chain going around the loop
+     *
+     *   starts and ends with the first loop member
+     *
+     * @param List<ExtSourceFile> loop
+     * @return List<ExtSourceFile> chain
+     */
+    public List<ExtSourceFile> getDependencyLoopChain(List<ExtSourceFile> loop) {
+        compact();
+
+        int first = getId(loop.get(0));
+        boolean[] members = new boolean[size];
+        int[] previous = new int[size];
+        int[] queue = new int[size + 1]; // first member is queued again when loop closes
+        int head = 0;
+        int tail = 0;
+
+        for (ExtSourceFile member : loop) {
+            members[getId(member)] = true;
+        }
+        Arrays.fill(previous, -1);
+
+        queue[tail++] = first;
+        while (head < tail && previous[first] == -1) {
+            int id = queue[head++];
+            for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+                int depId = targets[edge];
+                if (members[depId] && previous[depId] == -1) {
+                    previous[depId] = id;
+                    queue[tail++] = depId;
+                }
+            }
+        }
+
+        List<ExtSourceFile> chain = new ArrayList<ExtSourceFile>();
+        chain.add(nodes[first]);
+        for (int id = previous[first]; id != -1 && id != first; id = previous[id]) {
+            chain.add(nodes[id]);
+        }
+        chain.add(nodes[first]);
+        Collections.reverse(chain);
+
+        return chain;
+    }
+}
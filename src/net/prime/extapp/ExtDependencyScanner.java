@@ -0,0 +1,451 @@
+package net.prime.extapp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Dependency scanner
+ *
+ *   single pass tokenizer finding dependency type properties and their values
+ *   skips comments, string, template and regular expression literals
+ *
+ *   array types : '{dependencyType} : [ {extClass}, {extClass} ]',
+ *                 '{dependencyType} : { {key} : {extClass} }' or '{dependencyType} : {extClass}'
+ *   string types : '{dependencyType} : {extClass}'
+ *   call types : '{dependencyType}({extClass}, ...)' or '{dependencyType}([ {extClass}, {extClass} ], ...)'
+ *                for array call types (like 'Ext.create', 'Ext.require')
+ *
+ */
+public class ExtDependencyScanner {
+
+    private String[] types;
+    private boolean[] arrayTypes;
+    private boolean[] callTypes;
+    private boolean calls = false;
+    private String key;
+
+    /**
+     * Creates a new scanner
+     *
+     * @param String[] types dependency type names
+     * @param boolean[] arrayTypes true for array dependency types
+     */
+    ExtDependencyScanner(String[] types, boolean[] arrayTypes) {
+        this(types, arrayTypes, new boolean[types.length]);
+    }
+
+    /**
+     * Creates a new scanner
+     *
+     * @param String[] types dependency type names
+     * @param boolean[] arrayTypes true for array dependency types
+     * @param boolean[] callTypes true for call dependency types (first call argument)
+     */
+    ExtDependencyScanner(String[] types, boolean[] arrayTypes, boolean[] callTypes) {
+        this.types = types;
+        this.arrayTypes = arrayTypes;
+        this.callTypes = callTypes;
+
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            key.append(types[i] + (arrayTypes[i] ? "[]" : "") + (callTypes[i] ? "()" : "") + ",");
+            calls = calls || callTypes[i];
+        }
+        this.key = key.toString();
+    }
+
+    public String[] getTypes() {
+        return types;
+    }
+
+    /**
+     * Get key of dependency types
+     *
+     *   scanners with the same key find the same ext classes
+     *
+     * @return String
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Scan code for dependencies
+     *
+     * @param CharSequence code
+     * @return List<List<String>> ext classes by dependency type index (in code order)
+     */
+    public List<List<String>> scan(CharSequence code) {
+        List<List<String>> found = new ArrayList<List<String>>(types.length);
+        for (int i = 0; i < types.length; i++) {
+            found.add(new ArrayList<String>());
+        }
+
+        scan(code, found, null);
+        return found;
+    }
+
+    /**
+     * Scan code for dependencies in code order
+     *
+     * @param CharSequence code
+     * @return List<String[]> dependency type and ext class pairs (in code order)
+     */
+    public List<String[]> scanInOrder(CharSequence code) {
+        List<List<String>> found = new ArrayList<List<String>>(types.length);
+        List<String[]> ordered = new ArrayList<String[]>();
+        for (int i = 0; i < types.length; i++) {
+            found.add(new ArrayList<String>());
+        }
+
+        scan(code, found, ordered);
+        return ordered;
+    }
+
+    private void scan(CharSequence code, List<List<String>> found, List<String[]> ordered) {
+        int length = code.length();
+        int pos = 0;
+        boolean regexAllowed = true;
+        boolean condition = false; // last token was 'if', 'for', 'while' or 'with'
+
+        // open parentheses : set if parenthesis starts a condition ('if (a) /re/.test(s)')
+        BitSet conditions = new BitSet();
+        int parens = 0;
+
+        while (pos < length) {
+            char c = code.charAt(pos);
+
+            if (isWhitespace(c)) {
+                pos++;
+
+            } else if (c == '/') {
+                char next = pos + 1 < length ? code.charAt(pos + 1) : 0;
+                if (next == '/' || next == '*') {
+                    pos = skipComment(code, pos);
+                } else if (regexAllowed) {
+                    pos = skipRegex(code, pos);
+                    regexAllowed = false;
+                    condition = false;
+                } else {
+                    pos++;
+                    regexAllowed = true;
+                    condition = false;
+                }
+
+            } else if (c == '\'' || c == '"' || c == '`') {
+                int end = skipString(code, pos);
+                int type = getKeyType(code, pos + 1, end - 1, end);
+                if (type != -1) {
+                    pos = scanValue(code, skipBlank(code, end) + 1, type, found.get(type), ordered);
+                } else {
+                    pos = end;
+                }
+                regexAllowed = false;
+                condition = false;
+
+            } else if (isIdentifierStart(c)) {
+                int end = pos + 1;
+                while (end < length && isIdentifierPart(code.charAt(end))) {
+                    end++;
+                }
+                int type = getKeyType(code, pos, end, end);
+                int call = type == -1 && calls ? getCallType(code, pos) : -1;
+                if (type != -1) {
+                    pos = scanValue(code, skipBlank(code, end) + 1, type, found.get(type), ordered);
+                    regexAllowed = false;
+                    condition = false;
+                } else if (call != -1) {
+                    pos = scanValue(code, skipBlank(code, pos + types[call].length()) + 1, call, found.get(call), ordered);
+                    regexAllowed = false;
+                    condition = false;
+                } else {
+                    regexAllowed = isKeyword(code, pos, end);
+                    condition = isConditionKeyword(code, pos, end);
+                    pos = end;
+                }
+
+            } else {
+                regexAllowed = c != ')' && c != ']' && !isIdentifierPart(c);
+
+                if (c == '(') {
+                    conditions.set(parens++, condition);
+                } else if (c == ')' && parens > 0) {
+                    regexAllowed = conditions.get(--parens); // statement follows condition
+                }
+                condition = false;
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Get dependency type of property key
+     *
+     * @param CharSequence code
+     * @param int start key start
+     * @param int end key end
+     * @param int next position after key
+     * @return int type index or -1 if not a dependency type property
+     */
+    private int getKeyType(CharSequence code, int start, int end, int next) {
+        int colon = skipBlank(code, next);
+        if (colon >= code.length() || code.charAt(colon) != ':') {
+            return -1;
+        }
+
+        int keyLength = end - start;
+        for (int i = 0; i < types.length; i++) {
+            String type = types[i];
+            if (!callTypes[i] && type.length() == keyLength && regionMatches(code, start, type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get dependency type of call
+     *
+     *   example: 'Ext.create (' at start of 'Ext' identifier
+     *
+     * @param CharSequence code
+     * @param int start identifier start
+     * @return int type index or -1 if not a call of dependency type
+     */
+    private int getCallType(CharSequence code, int start) {
+        int length = code.length();
+
+        for (int i = 0; i < types.length; i++) {
+            String type = types[i];
+            int end = start + type.length();
+
+            if (callTypes[i] && end < length && regionMatches(code, start, type) && !isIdentifierPart(code.charAt(end))) {
+                int paren = skipBlank(code, end);
+                if (paren < length && code.charAt(paren) == '(') {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scan dependency type property value
+     *
+     * @param CharSequence code
+     * @param int pos position after colon
+     * @param int type
+     * @param List<String> found
+     * @param List<String[]> ordered found in code order or null
+     * @return int position to continue scanning from
+     */
+    private int scanValue(CharSequence code, int pos, int type, List<String> found, List<String[]> ordered) {
+        int length = code.length();
+        pos = skipBlank(code, pos);
+        if (pos >= length) {
+            return pos;
+        }
+
+        char c = code.charAt(pos);
+        if (c == '\'' || c == '"') {
+            int end = skipString(code, pos);
+            addLiteral(code, pos, end, type, found, ordered);
+            return end;
+        }
+        if (!arrayTypes[type] || (c != '[' && c != '{')) {
+            return pos;
+        }
+
+        // array or object (mixins) value : collect string literals of first level
+        boolean object = c == '{';
+        boolean value = !object;
+        int depth = 0;
+
+        while (pos < length) {
+            c = code.charAt(pos);
+
+            if (c == '/' && pos + 1 < length && (code.charAt(pos + 1) == '/' || code.charAt(pos + 1) == '*')) {
+                pos = skipComment(code, pos);
+            } else if (c == '\'' || c == '"' || c == '`') {
+                int end = skipString(code, pos);
+                if (depth == 1 && value && c != '`') {
+                    addLiteral(code, pos, end, type, found, ordered);
+                }
+                pos = end;
+            } else {
+                if (c == '[' || c == '{' || c == '(') {
+                    depth++;
+                } else if (c == ']' || c == '}' || c == ')') {
+                    depth--;
+                } else if (depth == 1 && object && (c == ':' || c == ',')) {
+                    value = c == ':';
+                }
+                pos++;
+                if (depth == 0) {
+                    break;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private void addLiteral(CharSequence code, int start, int end, int type, List<String> found, List<String[]> ordered) {
+        if (end - start > 2) {
+            String literal = code.subSequence(start + 1, end - 1).toString();
+            found.add(literal);
+            if (ordered != null) {
+                ordered.add(new String[] { types[type], literal });
+            }
+        }
+    }
+
+    /**
+     * Skip whitespaces and comments
+     *
+     * @param CharSequence code
+     * @param int pos
+     * @return int position of next significant char
+     */
+    private int skipBlank(CharSequence code, int pos) {
+        int length = code.length();
+        while (pos < length) {
+            char c = code.charAt(pos);
+            if (isWhitespace(c)) {
+                pos++;
+            } else if (c == '/' && pos + 1 < length && (code.charAt(pos + 1) == '/' || code.charAt(pos + 1) == '*')) {
+                pos = skipComment(code, pos);
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    private int skipComment(CharSequence code, int pos) {
+        int length = code.length();
+        if (code.charAt(pos + 1) == '/') {
+            pos += 2;
+            while (pos < length && code.charAt(pos) != '\n' && code.charAt(pos) != '\r') {
+                pos++;
+            }
+            return pos;
+        }
+
+        pos += 2;
+        while (pos + 1 < length && !(code.charAt(pos) == '*' && code.charAt(pos + 1) == '/')) {
+            pos++;
+        }
+        return Math.min(pos + 2, length);
+    }
+
+    /**
+     * Skip string or template literal
+     *
+     * @param CharSequence code
+     * @param int pos position of opening quote
+     * @return int position after closing quote
+     */
+    private int skipString(CharSequence code, int pos) {
+        int length = code.length();
+        char quote = code.charAt(pos++);
+
+        while (pos < length) {
+            char c = code.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == quote || (c == '\n' && quote != '`')) {
+                break;
+            }
+        }
+        return Math.min(pos, length);
+    }
+
+    private int skipRegex(CharSequence code, int pos) {
+        int length = code.length();
+        boolean charClass = false;
+        pos++;
+
+        while (pos < length) {
+            char c = code.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == '[') {
+                charClass = true;
+            } else if (c == ']') {
+                charClass = false;
+            } else if ((c == '/' && !charClass) || c == '\n') {
+                break;
+            }
+        }
+        while (pos < length && isIdentifierPart(code.charAt(pos))) { // flags
+            pos++;
+        }
+        return Math.min(pos, length);
+    }
+
+    /**
+     * Check for keywords which may be followed by regular expression literal
+     *
+     */
+    private boolean isKeyword(CharSequence code, int start, int end) {
+        switch (end - start) {
+            case 2:
+                return regionMatches(code, start, "in") || regionMatches(code, start, "do");
+            case 3:
+                return regionMatches(code, start, "new");
+            case 4:
+                return regionMatches(code, start, "case") || regionMatches(code, start, "else")
+                        || regionMatches(code, start, "void");
+            case 5:
+                return regionMatches(code, start, "throw");
+            case 6:
+                return regionMatches(code, start, "return") || regionMatches(code, start, "typeof")
+                        || regionMatches(code, start, "delete");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check for keywords followed by condition in parentheses
+     *
+     */
+    private boolean isConditionKeyword(CharSequence code, int start, int end) {
+        switch (end - start) {
+            case 2:
+                return regionMatches(code, start, "if");
+            case 3:
+                return regionMatches(code, start, "for");
+            case 4:
+                return regionMatches(code, start, "with");
+            case 5:
+                return regionMatches(code, start, "while");
+            default:
+                return false;
+        }
+    }
+
+    private static boolean regionMatches(CharSequence code, int start, String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (code.charAt(start + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B' 
+                || (c > 127 && (Character.isSpaceChar(c) || c == '\uFEFF'));
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$'
+                || (c > 127 && Character.isJavaIdentifierStart(c));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9') || (c > 127 && Character.isJavaIdentifierPart(c));
+    }
+}
@@ -0,0 +1,252 @@
+package net.prime.extapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Dev server
+ *
+ *   serves web folder (base path) on localhost, output files are built on demand :
+ *
+ * - output files (and source maps, bundles) are kept in memory, no files are written
+ * - request of output file rebuilds it when loaded source files are changed on disk
+ * - responses have ETag : unchanged files are answered with 304 Not Modified
+ * - other files of web folder are served as is
+ *
+ */
+public class ExtDevServer {
+
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<String, String>();
+
+    static {
+        CONTENT_TYPES.put("js", "application/javascript; charset=" + ExtappMain.charset);
+        CONTENT_TYPES.put("json", "application/json; charset=" + ExtappMain.charset);
+        CONTENT_TYPES.put("map", "application/json; charset=" + ExtappMain.charset);
+        CONTENT_TYPES.put("html", "text/html; charset=" + ExtappMain.charset);
+        CONTENT_TYPES.put("css", "text/css; charset=" + ExtappMain.charset);
+        CONTENT_TYPES.put("txt", "text/plain; charset=" + ExtappMain.charset);
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+    }
+
+    private ExtappMain main = null;
+    private ExtappConfig config = null;
+    private int port = 0;
+
+    private HttpServer server = null;
+    private ExtFileCombiner combiner = null;
+
+    // outputs of last build : absolute output file path : bytes and ETag
+    private Map<String, byte[]> outputs = null;
+    private Map<String, String> etags = new HashMap<String, String>();
+
+    /**
+     * Creates a new dev server
+     *
+     * @param ExtappMain main prepared app
+     * @param ExtappConfig config
+     * @param int port
+     */
+    ExtDevServer(ExtappMain main, ExtappConfig config, int port) {
+        this.main = main;
+        this.config = config;
+        this.port = port;
+
+        main.setInMemory(true);
+        main.setExitOnError(false);
+    }
+
+    /**
+     * Start server
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(Executors.newFixedThreadPool(main.getThreads()));
+
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handleRequest(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+
+        server.start();
+        System.err.println("\n[INFO] Dev server : http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/" + "\n");
+    }
+
+    /**
+     * Get output of last build
+     *
+     * - first request builds all outputs
+     * - request of output file rebuilds outputs when loaded source files are changed
+     *
+     * @param String filepath absolute file path
+     * @return byte[] output, or null if file is not an output file
+     * @throws IOException
+     */
+    private byte[] getOutput(String filepath) throws IOException {
+        if (combiner == null || outputs.containsKey(filepath)) {
+            try {
+                if (combiner == null) {
+                    combiner = new ExtFileCombiner(main, config);
+                    combiner.init();
+                } else {
+                    List<ExtSourceFile> changedFiles = combiner.getChangedFiles();
+                    if (!changedFiles.isEmpty()) {
+                        combiner.rebuild(changedFiles);
+                    }
+                }
+            } catch (IllegalStateException e) {
+                combiner = null; // full build on next request
+                throw new IOException(e.getMessage(), e);
+            }
+
+            if (combiner.getOutputs() == null) {
+                combiner = null;
+                throw new IOException("Extapp build failed : " + main.getOutputFilepath());
+            }
+            if (combiner.getOutputs() != outputs) {
+                setOutputs(combiner.getOutputs());
+            }
+        }
+        return outputs.get(filepath);
+    }
+
+    /**
+     * Set outputs of new build and their ETags
+     *
+     * @param Map<String, byte[]> outputs
+     */
+    private void setOutputs(Map<String, byte[]> outputs) {
+        this.outputs = outputs;
+        this.etags = new HashMap<String, String>();
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            for (Map.Entry<String, byte[]> output : outputs.entrySet()) {
+                etags.put(output.getKey(), "\"" + String.format("%032x", new BigInteger(1, digest.digest(output.getValue()))) + "\"");
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Handle request
+     *
+     * @param HttpExchange exchange
+     * @throws IOException
+     */
+    private void handleRequest(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            respond(exchange, 405, CONTENT_TYPES.get("txt"), null, "Method not allowed\n".getBytes(ExtappMain.charset));
+            return;
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        File root = new File(main.getPath("/")).getCanonicalFile();
+        File file = new File(main.getPath(path)).getAbsoluteFile();
+
+        // files outside of web folder are not served
+        if (!file.getCanonicalFile().toPath().startsWith(root.toPath())) {
+            respond(exchange, 403, CONTENT_TYPES.get("txt"), null, "Forbidden\n".getBytes(ExtappMain.charset));
+            return;
+        }
+
+        byte[] body;
+        String etag;
+        try {
+            synchronized (this) {
+                body = getOutput(file.getPath());
+                etag = etags.get(file.getPath());
+            }
+        } catch (IOException e) {
+            respond(exchange, 500, CONTENT_TYPES.get("txt"), null, ("[ERROR] " + e.getMessage() + "\n").getBytes(ExtappMain.charset));
+            return;
+        }
+
+        if (body == null) {
+            if (!file.isFile()) {
+                respond(exchange, 404, CONTENT_TYPES.get("txt"), null, "Not found\n".getBytes(ExtappMain.charset));
+                return;
+            }
+            etag = "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+            if (!etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                body = Files.readAllBytes(file.toPath());
+            }
+        }
+
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            respond(exchange, 304, null, etag, null);
+        } else {
+            respond(exchange, 200, getContentType(file.getName()), etag, body);
+        }
+    }
+
+    private static String getContentType(String filename) {
+        String contentType = CONTENT_TYPES.get(filename.substring(filename.lastIndexOf('.') + 1).toLowerCase());
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+
+    /**
+     * Send response
+     *
+     *   ETag responses are revalidated on each use (Cache-Control : no-cache)
+     *
+     * @param HttpExchange exchange
+     * @param int status
+     * @param String contentType
+     * @param String etag
+     * @param byte[] body or null (304)
+     * @throws IOException
+     */
+    private void respond(HttpExchange exchange, int status, String contentType, String etag, byte[] body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        }
+
+        if (body == null || "HEAD".equals(exchange.getRequestMethod())) {
+            if (body != null) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            }
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream stream = exchange.getResponseBody();
+        try {
+            stream.write(body);
+        } finally {
+            stream.close();
+        }
+    }
+}
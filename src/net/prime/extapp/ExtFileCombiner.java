@@ -1,34 +1,101 @@
 package net.prime.extapp;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 
 import net.prime.extapp.ExtappConfig.DependTypeEnum;
 
 public class ExtFileCombiner {
 
+    private static Gson gs = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
     private ExtappMain main = null;
     private ExtappConfig config = null;
     
-    private Map<String, ExtSourceFile> sourceFiles = new HashMap<String, ExtSourceFile>();
+    private Map<String, ExtSourceFile> sourceFiles = null;
+    private Set<String> missingFiles = null;
+
+    // loaded by worker threads, linked into dependency graph in discovery order
+    private Map<String, ExtSourceFile> loadedFiles = new ConcurrentHashMap<String, ExtSourceFile>();
+    private Set<String> loadingFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // ext class names of loaded source files : one string per name
+    private ConcurrentHashMap<String, String> extClassNames = new ConcurrentHashMap<String, String>();
+    
+    ExtDependencyGraph graph = null;
+
+    // bundle name : entry source files found in dependency graph
+    private Map<String, List<ExtSourceFile>> bundleEntries = null;
+    
+    // source files in rank order
+    List<ExtSourceFile> rangedSourceFiles = null;
     
-    ValueComparator valueComparator =  new ValueComparator(this.sourceFiles);
-    TreeMap<String,ExtSourceFile> rangedSourceFiles = new TreeMap<String,ExtSourceFile>(valueComparator);
+    private ExtDependencyScanner scanner = null;
+    private ExtAliasIndex aliasIndex = null; // created when reference types are enabled
+    private ExtDependencyCache cache = null;
+    private int cacheHits = 0; // cache counters at build start
+    private int cacheMisses = 0;
+    private ExtTransformCache transformCache = null; // created for minified builds
+
+    // outputs kept in memory : output file path : bytes
+    private Map<String, byte[]> outputs = null;
+    private File outputFile = null; // output file of last build (named by content hash if enabled)
+    private List<File> outputFiles = null; // all files written by last build
+    private ExtArtifactCache artifactCache = null; // created for builds with artifact cache
+    private String artifactKey = null;
+    private String contentHash = null;
     
     ExtFileCombiner(ExtappMain extappMain, ExtappConfig config) {
         this.main = extappMain;
         this.config = config;
+        this.scanner = createDependencyScanner();
+
+        this.cache = this.main.getDependencyCache(getDependencyFingerprint());
+        reset();
+    }
+
+    /**
+     * Reset dependency graph and ranks
+     * 
+     *   loaded source files are kept for rebuilds
+     */
+    public void reset() {
+        this.sourceFiles = new HashMap<String, ExtSourceFile>();
+        this.missingFiles = new HashSet<String>();
+        this.graph = new ExtDependencyGraph(this.sourceFiles);
+        this.bundleEntries = new LinkedHashMap<String, List<ExtSourceFile>>();
+        this.rangedSourceFiles = new ArrayList<ExtSourceFile>();
+
+        for (ExtSourceFile sourceFile : this.loadedFiles.values()) {
+            sourceFile.setRank(0);
+        }
     }
 
     /**
@@ -108,11 +175,30 @@ public class ExtFileCombiner {
         return dependType != null ? dependType.isArrayProperty() : false;
     }
     
+    /**
+     * Check for reference dependency type
+     * 
+     *   reference values are aliases, alternate class names or class names :
+     *   'xtype', 'Ext.create', 'Ext.widget', 'Ext.require'
+     * 
+     * @param String type
+     * @return Boolean
+     */
+    public Boolean isReferenceDependencyType(String type) {
+        DependTypeEnum dependType = this.config.getDependTypeEnums().get(type);
+        return dependType != null ? dependType.isReference() : false;
+    }
+
+    public Boolean isCallDependencyType(String type) {
+        DependTypeEnum dependType = this.config.getDependTypeEnums().get(type);
+        return dependType != null ? dependType.isCall() : false;
+    }
+
     /**
      * Check for include ext class
      * 
      *   include/exclude ext classes and sub-classes
-     *   collect known ext classes definitions for re-use
+     *   the longest configured namespace of ext class decides
      *   
      *   example : include 'Ext.ux' but exclude 'Ext'
      * 
@@ -120,106 +206,168 @@ public class ExtFileCombiner {
      * @return Boolean default true
      */
     public Boolean isIncludeExtClass(String extClass){
-        Boolean include = config.getExtClasses().get(extClass);
-        String extClassTree = extClass;
-        int i = extClass.lastIndexOf(".");
+        ExtNamespaceTrie.Node<Boolean> namespace = config.getExtClassesTrie().find(extClass);
 
-        if (include != null && include == true) {
-            i = -1;
-        }
-        
-        while (i != -1) {
-            extClassTree = extClassTree.substring(0, i);
-            include = config.getExtClasses().get(extClassTree);
-            i = extClassTree.lastIndexOf(".");
-            if (include != null) {
-                i = -1;
+        return namespace != null ? namespace.getValue() : true;
+    }
+    
+    /**
+     * Create dependency scanner for enabled dependency types
+     * 
+     * @return ExtDependencyScanner
+     */
+    public ExtDependencyScanner createDependencyScanner() {
+        List<String> types = new ArrayList<String>();
+        for (Entry<String, Boolean> depType : this.config.getDependTypes().entrySet()) {
+            if (depType.getValue()) {
+                types.add(depType.getKey());
             }
         }
-        
-        if (include != null) { // collect for re-use
-            config.getExtClasses().put(extClass, include);
+
+        boolean[] arrayTypes = new boolean[types.size()];
+        boolean[] callTypes = new boolean[types.size()];
+        for (int i = 0; i < types.size(); i++) {
+            arrayTypes[i] = isArrayDependencyType(types.get(i));
+            callTypes[i] = isCallDependencyType(types.get(i));
         }
 
-        return include != null ? include : true;
+        return new ExtDependencyScanner(types.toArray(new String[types.size()]), arrayTypes, callTypes);
     }
-    
+
     /**
-     * Get dependent ext classes by dependency type
+     * Get fingerprint of config settings which affect found dependencies
      * 
-     * @param extClass
-     * @param type
-     * @param filteredCode
-     * @return ArrayList<String> depExtClasses
+     *   charset, app name and folder, dependency types and include/exclude ext classes
+     * 
+     * @return String
      */
-    public List<String> getDependentExtClassesByType(String extClass, String type, String filteredCode) {
-        Pattern depPattern;
-        Matcher depMatcher;
-        List<String> depMatches;
-        Pattern extClassPattern;
-        ArrayList<String> depExtClasses = new ArrayList<String>();
+    public String getDependencyFingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
 
-        if (isArrayDependencyType(type)) {
-            depPattern = Pattern.compile(type + "\\:\\[(.*?)\\]");
-            depMatcher = depPattern.matcher(filteredCode);
-            depMatches = new ArrayList<String>();
+        fingerprint.append(ExtappMain.charset + ";" + this.config.getAppName() + ";" + this.config.getAppFolder() + ";");
+        for (String type : this.scanner.getTypes()) {
+            fingerprint.append(type + (isArrayDependencyType(type) ? "[" : "") + (isFolderDependencyType(type) ? "/" : "") + ",");
+        }
+        fingerprint.append(";");
+        for (Entry<String, Boolean> extClass : new TreeMap<String, Boolean>(this.config.getExtClasses()).entrySet()) {
+            fingerprint.append(extClass.getKey() + "=" + extClass.getValue() + ",");
+        }
 
-            while(depMatcher.find()) {
-                depMatches.add(depMatcher.group(1));
-            }
+        return fingerprint.toString();
+    }
 
-            extClassPattern = Pattern.compile("'([^' ]+)'");
+    /**
+     * Get dependent ext classes by dependency type
+     * 
+     *   filters included ext classes and adds folder prefix for folder types
+     * 
+     * @param String type
+     * @param List<String> typeExtClasses ext classes found by scanner
+     * @return ArrayList<String> depExtClasses
+     */
+    public List<String> getDependentExtClassesByType(String type, List<String> typeExtClasses) {
+        ArrayList<String> depExtClasses = new ArrayList<String>();
+        Boolean folder = isArrayDependencyType(type) && isFolderDependencyType(type);
 
-            for(String dep : depMatches) {
-                Matcher extClassMatcher = extClassPattern.matcher(dep.replaceAll("\"","'"));
-                while(extClassMatcher.find()) { 
-                    String depExtClass = extClassMatcher.group().replaceAll("\'", "");
-                    
-                    if (isIncludeExtClass(depExtClass)) {
-                        String depExtClassPrefix = isFolderDependencyType(type) 
-                                ? getDependencyTypeFolder(type) + "." : "";
-                        depExtClass = depExtClass.startsWith(this.config.getAppName()) 
-                                ? depExtClass : depExtClassPrefix + depExtClass;
-                        depExtClasses.add(depExtClass);
-                    }
-                }
-            }            
-        } else {
-            depPattern = Pattern.compile(type + "\\:\\'(.*?)\\'");
-            depMatcher = depPattern.matcher(filteredCode.replaceAll("\"","'"));
-            depMatches = new ArrayList<String>();
-
-            while(depMatcher.find()) {
-                String depExtClass = depMatcher.group(1);
-                if (isIncludeExtClass(depExtClass)) {
-                    depExtClasses.add(depExtClass);
+        for (String depExtClass : typeExtClasses) {
+            if (isIncludeExtClass(depExtClass)) {
+                if (folder && !depExtClass.startsWith(this.config.getAppName())) {
+                    depExtClass = getDependencyTypeFolder(type) + "." + depExtClass;
                 }
+                depExtClasses.add(depExtClass);
             }
         }
 
         return depExtClasses;
     }
     
-    public List<String> getDependentExtClasses(ExtSourceFile sourceFile) {
+    /**
+     * Get references by dependency type
+     * 
+     *   alias prefix is added to values : xtype 'boxselect' > 'widget.boxselect'
+     * 
+     * @param String type
+     * @param List<String> typeReferences references found by scanner
+     * @return List<String> references
+     */
+    public List<String> getReferencesByType(String type, List<String> typeReferences) {
+        String aliasPrefix = this.config.getDependTypeEnums().get(type).getAliasPrefix();
+        List<String> references = new ArrayList<String>();
+
+        for (String reference : typeReferences) {
+            references.add(aliasPrefix != null ? aliasPrefix + reference : reference);
+        }
+        return references;
+    }
+
+    /**
+     * Resolve references of source file by alias index
+     * 
+     *   included ext classes are added to dependent ext classes (after declared ones),
+     *   references to the source file itself are skipped
+     * 
+     * @param ExtSourceFile sourceFile
+     */
+    public void resolveReferences(ExtSourceFile sourceFile) {
+        List<String> references = sourceFile.getReferences();
+
+        if (aliasIndex == null || references == null || references.isEmpty()) {
+            return;
+        }
+
+        Set<String> depExtClasses = new LinkedHashSet<String>(sourceFile.getDependentExtClasses());
+        for (String reference : references) {
+            String extClass = aliasIndex.resolve(reference);
+            if (extClass != null && isIncludeExtClass(extClass) && !extClass.equals(sourceFile.getExtClass())) {
+                depExtClasses.add(extClass);
+            }
+        }
+        sourceFile.setDependentExtClasses(new ArrayList<String>(depExtClasses), sourceFile.getDuplicateDependencies());
+    }
+
+    /**
+     * Find dependent ext classes of source file
+     * 
+     *   runs on loader threads : duplicates are counted here and reported on linking
+     *   scan results are shared with other apps built in the same run
+     * 
+     * @param ExtSourceFile sourceFile
+     */
+    public void findDependentExtClasses(ExtSourceFile sourceFile) {
         List<String> depExtClasses = new ArrayList<String>();
-        for (Entry<String, Boolean> depType : this.config.getDependTypes().entrySet()) {
-            if (depType.getValue()) {
-                List<String> currDepExtClasses = getDependentExtClassesByType(sourceFile.getExtClass(), 
-                        depType.getKey(), sourceFile.getFilteredContents());
-                depExtClasses.addAll(currDepExtClasses);
+        ExtScanCache scanCache = this.main.getScanCache();
+        List<List<String>> found = scanCache != null ? scanCache.get(scanner, sourceFile) : null;
+        String[] types = scanner.getTypes();
+
+        if (found == null) {
+            long readStart = System.nanoTime();
+            CharSequence code = sourceFile.getCode();
+            long scanStart = System.nanoTime();
+
+            found = scanner.scan(code);
+            this.main.getReport().addRead(sourceFile.getSize(), scanStart - readStart);
+            this.main.getReport().addScan(sourceFile.getWebPath(), System.nanoTime() - scanStart);
+
+            if (scanCache != null) {
+                scanCache.put(scanner, sourceFile, found);
+            }
+        }
+
+        List<String> references = new ArrayList<String>();
+        for (int i = 0; i < types.length; i++) {
+            if (isReferenceDependencyType(types[i])) {
+                references.addAll(getReferencesByType(types[i], found.get(i)));
+            } else {
+                depExtClasses.addAll(getDependentExtClassesByType(types[i], found.get(i)));
             }
         }
         
         // remove duplicate dependencies
         List<String> deduppedDepExtClasses = new ArrayList<String>(new LinkedHashSet<String>(depExtClasses));
         int numDuplicates = depExtClasses.size() - deduppedDepExtClasses.size();
-        if (numDuplicates > 0){
-            printMsg("Ext class '" + sourceFile.getExtClass() + "' has " + numDuplicates + 
-                    " duplicate dependencies. File : " + sourceFile.getWebPath() + "\n", "warning");
-            this.main.warnings++;
-        }
 
-        return deduppedDepExtClasses;
+        sourceFile.setDependentExtClasses(deduppedDepExtClasses, numDuplicates);
+        sourceFile.setReferences(new ArrayList<String>(new LinkedHashSet<String>(references)));
     }
 
     public Boolean isResolvedPath(String extClass) {
@@ -233,34 +381,16 @@ public class ExtFileCombiner {
     /**
      * Resolve path by ext class tree
      * 
-     *   using path map
+     *   using the longest configured namespace of ext class
      *   collect known ext classes paths for re-use
      * 
      * @param String extClass
      * 
      */
     public void resolvePathByTree(String extClass) {
-        String path = "";
-        String currPath = config.getPaths().get(extClass);
-        String extClassTree = extClass;
-        String subTree = "";
-        int i = extClass.lastIndexOf(".");
+        String path = config.getPathByTree(extClass);
 
-        while (i != -1) {
-            extClassTree = extClassTree.substring(0, i);
-            currPath = config.getPaths().get(extClassTree);
-            i = extClassTree.lastIndexOf(".");
-            if (currPath != null) {
-                i = -1;
-            }
-        }
-        
-        if (currPath != null) {
-            subTree = extClass.replace(extClassTree, "");
-            path = currPath + subTree.replaceAll("\\.", "/");
-            if (!path.endsWith(".js")) {
-                path += ".js";
-            }
+        if (path != null) {
             config.getPaths().put(extClass, path);
         }
     }
@@ -271,13 +401,7 @@ public class ExtFileCombiner {
      * @param String extClass
      */
     public void resolvePathByConfig(String extClass) {
-        String extClassWebPath = extClass.replaceAll("\\.", "/") + ".js";
-
-        extClassWebPath = extClassWebPath.startsWith(this.config.getAppName())
-                ? config.getAppFolder() + extClassWebPath.replace(this.config.getAppName(), "") 
-                : config.getAppFolder() + "/" + extClassWebPath;
-
-        config.getPaths().put(extClass, extClassWebPath);        
+        config.getPaths().put(extClass, config.getPathByAppFolder(extClass));
     }
     
     /**
@@ -289,6 +413,8 @@ public class ExtFileCombiner {
      * @param String extClasses
      */
     public void resolvePaths(List<String> extClasses) {
+        long start = System.nanoTime();
+
         for (String extClass : extClasses) { 
             if (!isResolvedPath(extClass)) {
                 resolvePathByTree(extClass);
@@ -298,162 +424,1140 @@ public class ExtFileCombiner {
             }
             // printMsg(config.getPaths().get(extClass));
         }
+        this.main.getReport().addTime("resolve", System.nanoTime() - start);
     }
 
     public String getExtClassFilePath(String extClass) {
-        return this.main.getBasePath() + this.config.getAppFolder() + "/" + extClass.replaceAll("\\.", "/") + ".js";
+        return this.main.getBasePath() + this.config.getAppFolder() + "/" + extClass.replace('.', '/') + ".js";
     }
 
     public String getExtClassFileWebPath(String extClass) {
-        return this.config.getAppFolder() + "/" + extClass.replaceAll("\\.", "/") + ".js";
+        return this.config.getAppFolder() + "/" + extClass.replace('.', '/') + ".js";
     }
 
+    /**
+     * Get source file web path of ext class
+     * 
+     *   falls back to app folder when path was not resolved
+     * 
+     * @param String extClass
+     * @return String
+     */
+    public String getSourceFileWebPath(String extClass) {
+        String path = config.getPaths().get(extClass);
 
+        if (path == null) {
+            path = getExtClassFileWebPath(extClass);
+            config.getPaths().put(extClass, path);
+        }
+        return path;
+    }
 
     /**
-     * Process source file
+     * Load source file
      * 
-     * - lookup for file path in path map
-     * - get source file from source files map or create it
-     * - set range
-     * - find dependent ext classes
-     * - process  dependent ext classes
+     * - take dependent ext classes from cache or read source file and find them
+     * - resolve references by alias index
+     * - resolve dependent ext classes
      * 
      * @param String extClass
-     * @param Integer rank
+     * @param String fullpath
+     * @param String webPath
+     * @return ExtSourceFile
      */
-    public void processSourceFile(String extClass, Integer rank) {
-        String path = config.getPaths().get(extClass);
-        ExtSourceFile sourceFile = sourceFiles.get(path); 
-        
-        // create new source file
-        if (sourceFile == null) {
-            if (path == null) {
-                sourceFile = new ExtSourceFile(extClass, getExtClassFilePath(extClass), getExtClassFileWebPath(extClass));
-                config.getPaths().put(extClass, sourceFile.getWebPath());
-            } else {
-                sourceFile = new ExtSourceFile(extClass, this.main.getBasePath() + path, path);
-            }
-            
-            if (sourceFile.isFile()) {
-                sourceFiles.put(sourceFile.getWebPath(), sourceFile);
+    public ExtSourceFile loadSourceFile(String extClass, String fullpath, String webPath) {
+        ExtSourceFile sourceFile = new ExtSourceFile(extClass, fullpath, webPath);
+
+        if (sourceFile.isFile()) {
+            if (this.cache == null || !this.cache.get(sourceFile)) {
+                findDependentExtClasses(sourceFile);
+                if (this.cache != null) {
+                    this.cache.put(sourceFile);
+                }
             }
+            resolveReferences(sourceFile);
+            sourceFile.setDependentExtClasses(internExtClasses(sourceFile.getDependentExtClasses()), 
+                    sourceFile.getDuplicateDependencies());
+            resolvePaths(sourceFile.getDependentExtClasses());
         }
+        loadedFiles.put(webPath, sourceFile);
         
-        // process new/existing source file
-        if (sourceFile.isEnabled()){
+        return sourceFile;
+    }
+
+    /**
+     * Intern ext class names
+     * 
+     *   names scanned from each source file are separate strings : 
+     *   equal names share the first one seen
+     * 
+     * @param List<String> extClasses
+     * @return List<String> interned ext classes
+     */
+    public List<String> internExtClasses(List<String> extClasses) {
+        List<String> internedExtClasses = new ArrayList<String>(extClasses.size());
+
+        for (String extClass : extClasses) {
+            String internedExtClass = extClassNames.putIfAbsent(extClass, extClass);
+            internedExtClasses.add(internedExtClass != null ? internedExtClass : extClass);
+        }
+        return internedExtClasses;
+    }
+
+    /**
+     * Load source file task
+     * 
+     *   loads source file on worker thread and forks tasks
+     *   for dependent ext classes which are not loading yet
+     * 
+     */
+    class LoadSourceFileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private String extClass;
+        private String fullpath;
+        private String webPath;
+
+        LoadSourceFileTask(String extClass, String fullpath, String webPath) {
+            this.extClass = extClass;
+            this.fullpath = fullpath;
+            this.webPath = webPath;
+        }
+
+        @Override
+        protected void compute() {
+            ExtSourceFile sourceFile = loadSourceFile(extClass, fullpath, webPath);
+            List<LoadSourceFileTask> tasks = new ArrayList<LoadSourceFileTask>();
+
             if (sourceFile.isFile()) {
-                // set rank
-                if (sourceFile.getRank() < rank) {
-                    sourceFile.setRank(rank);
+                for (String depExtClass : sourceFile.getDependentExtClasses()) {
+                    String depPath = getSourceFileWebPath(depExtClass);
+                    if (loadingFiles.add(depPath)) {
+                        tasks.add(new LoadSourceFileTask(depExtClass, main.getBasePath() + depPath, depPath));
+                    }
                 }
+            }
+            invokeAll(tasks);
+        }
+    }
 
-                // process dependencies
-                List<String> depExtClasses = getDependentExtClasses(sourceFile);
-                resolvePaths(depExtClasses);
-                processSourceFiles(sourceFile, depExtClasses, sourceFile.getRank() + 1);
+    /**
+     * Load all source files reachable from root source file and bundle entries
+     * 
+     * @param String extClass
+     * @param String fullpath
+     * @param String webPath
+     */
+    public void loadSourceFiles(String extClass, String fullpath, String webPath) {
+        List<LoadSourceFileTask> tasks = new ArrayList<LoadSourceFileTask>();
 
-            } else {
-                printMsg("File not found : " + sourceFile.getWebPath() + "\n", "error");
-                this.main.errors++;
+        loadingFiles.add(webPath);
+        tasks.add(new LoadSourceFileTask(extClass, fullpath, webPath));
+
+        for (List<String> entries : this.config.getBundles().values()) {
+            resolvePaths(entries);
+            for (String entry : entries) {
+                String path = getSourceFileWebPath(entry);
+                if (loadingFiles.add(path)) {
+                    tasks.add(new LoadSourceFileTask(entry, this.main.getBasePath() + path, path));
+                }
             }
-        }        
-        // printProgress();
+        }
+        loadSourceFiles(tasks);
     }
-    
+
     /**
-     * Process all ext dependencies
+     * Get message of error
      * 
-     * @param List<String> extClasses
-     * @param Integer rank
+     *   errors of pool threads are wrapped (future result or copy of exception by pool)
+     * 
+     * @param Throwable e
+     * @return String
      */
-    public void processSourceFiles(ExtSourceFile sourceFile, List<String> extClasses, Integer rank) {
+    private static String getErrorMessage(Throwable e) {
+        while (e.getCause() != null && (e instanceof ExecutionException || e.getCause() instanceof IllegalStateException)) {
+            e = e.getCause();
+        }
+        return e.getMessage();
+    }
 
-        if (this.config.isSafeRank() && this.config.getSafeRankLimit() < rank) {
-            sourceFile.disable();
-            printMsg("Rank limit " + this.config.getSafeRankLimit() + " has been reached. Possibly infinite loop took place.\n"
-                    + "Stop processing '" + sourceFile.getExtClass() + "'. Please check dependency chain or disable safe rank.\n"
-                    + "Ext class '" + sourceFile.getExtClass() + "'. File : " + sourceFile.getWebPath() + "\n", "warning");
-            this.main.warnings++;
+    /**
+     * Run load source file tasks
+     * 
+     *   on the pool shared by apps built in one run or on a pool of this build,
+     *   unreadable source file fails the build
+     * 
+     * @param List<LoadSourceFileTask> tasks
+     */
+    public void loadSourceFiles(final List<LoadSourceFileTask> tasks) {
+        ForkJoinPool pool = this.main.getPool() != null ? this.main.getPool() : new ForkJoinPool(this.main.getThreads());
+        long start = System.nanoTime();
 
-        } else {
-            for (String extClass : extClasses) {
-                processSourceFile(extClass, rank);
-            }            
+        try {
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (IllegalStateException e) {
+            this.main.fail(getErrorMessage(e));
+        } finally {
+            this.main.getReport().addTime("load", System.nanoTime() - start);
+            if (pool != this.main.getPool()) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Get loaded source files
+     * 
+     *   includes files which were not found
+     * 
+     * @return Collection<ExtSourceFile>
+     */
+    public Collection<ExtSourceFile> getLoadedFiles() {
+        return loadedFiles.values();
+    }
+
+    /**
+     * Process source file
+     * 
+     * - lookup for file path in path map
+     * - get source file from dependency graph or take loaded one
+     * - process dependent ext classes
+     * 
+     * @param String extClass
+     * @return ExtSourceFile or null if file was not found
+     */
+    public ExtSourceFile processSourceFile(String extClass) {
+        String path = getSourceFileWebPath(extClass);
+
+        // existing source file
+        ExtSourceFile sourceFile = graph.getSourceFile(path);
+        if (sourceFile != null || missingFiles.contains(path)) {
+            return sourceFile;
+        }
+
+        // loaded source file
+        sourceFile = loadedFiles.get(path);
+        if (sourceFile == null) {
+            sourceFile = loadSourceFile(extClass, this.main.getBasePath() + path, path);
+        }
+
+        if (sourceFile.isFile()) {
+            graph.addSourceFile(sourceFile);
+            processSourceFiles(sourceFile);
+            // printProgress();
+            return sourceFile;
         }
+
+        missingFiles.add(path);
+        printMsg("File not found : " + sourceFile.getWebPath() + "\n", "error");
+        this.main.errors++;
+        return null;
     }
     
     /**
-     *  Finish results
-     *  
-     *  - range source files
-     *  - write to output file
-     *   
+     * Process all ext dependencies of source file
+     * 
+     * @param ExtSourceFile sourceFile
      */
-    public void finishResults() {
-        try {
-            String outputFilepath = this.main.getOutputFilepath();
-            File file = new File(outputFilepath);
-            
-            // if file does not exists, then create it
-            if (!file.exists()) {
-                file.createNewFile();
+    public void processSourceFiles(ExtSourceFile sourceFile) {
+        int numDuplicates = sourceFile.getDuplicateDependencies();
+
+        if (numDuplicates > 0){
+            printMsg("Ext class '" + sourceFile.getExtClass() + "' has " + numDuplicates + 
+                    " duplicate dependencies. File : " + sourceFile.getWebPath() + "\n", "warning");
+            this.main.warnings++;
+        }
+
+        for (String extClass : sourceFile.getDependentExtClasses()) {
+            ExtSourceFile depSourceFile = processSourceFile(extClass);
+            if (depSourceFile != null) {
+                graph.addDependency(sourceFile, depSourceFile);
             }
-            
-            FileWriter fw = new FileWriter(file.getAbsoluteFile());
-            BufferedWriter bw = new BufferedWriter(fw);
-            
-            rangedSourceFiles.putAll(this.sourceFiles);
-    
-            printSection("Building ext app...");
-            printMsg("-- rank : extClass --");
-            
-            for (Entry<String, ExtSourceFile> entry : rangedSourceFiles.entrySet()) {
-                String key = entry.getKey();
-                ExtSourceFile sourceFile = entry.getValue();
+        }
+    }
 
-                if (this.main.getDelimiter()){
-                    bw.write("\n\n/* ----- " + sourceFile.getWebPath() + " ----- */\n\n");
-                }
+    /**
+     * Process bundle entries
+     * 
+     *   entries which are not required by root source file are added to dependency graph too
+     * 
+     */
+    public void processBundleEntries() {
+        for (Entry<String, List<String>> bundle : this.config.getBundles().entrySet()) {
+            List<ExtSourceFile> entries = new ArrayList<ExtSourceFile>();
 
-                if (this.main.isMinify()) {
-                    bw.write(sourceFile.getFilteredContents());
-                } else {
-                    bw.write(sourceFile.getContents() + "\n\n");
+            resolvePaths(bundle.getValue());
+            for (String extClass : bundle.getValue()) {
+                ExtSourceFile entry = processSourceFile(extClass);
+                if (entry != null) {
+                    entries.add(entry);
                 }
-    
-                printMsg(sourceFile.getRank() + " : " + key);
             }
-
-            bw.close();
-            
-            printSection("Extapp build complete!");
-            printStatistics();
-            
-        } catch (IOException ex) {
-            System.err.println(ex.getMessage());
-            System.exit(1);
+            bundleEntries.put(bundle.getKey(), entries);
         }
     }
 
-    public void init() {
-        printSection("Processing source files...");
-
-        String sourceFileWebPath = this.main.getSourceFilename();
-        ExtSourceFile sourceFile = new ExtSourceFile(this.config.getAppName(), this.main.getSourceFilepath(), sourceFileWebPath);
-        
-        if (sourceFile.isFile()) {
-            sourceFiles.put(sourceFile.getWebPath(), sourceFile);    
-            List<String> depExtClasses = getDependentExtClasses(sourceFile);
-            resolvePaths(depExtClasses);
-            processSourceFiles(sourceFile, depExtClasses, sourceFile.getRank() + 1);
-            finishResults();
+    /**
+     * Rank source files
+     * 
+     * - report dependency loops (safe rank), each loop once
+     * - longest dependency path in one topological pass
+     * - bundle entries not required by root source file are ranked from their own pass
+     * 
+     * @param ExtSourceFile sourceFile root source file
+     */
+    public void rankSourceFiles(ExtSourceFile sourceFile) {
+        List<ExtSourceFile> roots = new ArrayList<ExtSourceFile>();
+        Set<ExtSourceFile> reported = new HashSet<ExtSourceFile>();
 
-        } else {
-            printMsg("Source file not found : " + sourceFile.getWebPath() + "\n", "error");
-            this.main.errors++;
-            printSection("Extapp build failed!");
-            printStatistics();
+        roots.add(sourceFile);
+        for (List<ExtSourceFile> entries : bundleEntries.values()) {
+            roots.addAll(entries);
         }
+
+        if (this.config.isSafeRank()) {
+            for (ExtSourceFile root : roots) {
+                for (List<ExtSourceFile> loop : graph.getDependencyLoops(root)) {
+                    if (Collections.disjoint(reported, loop)) {
+                        reported.addAll(loop);
+                        printDependencyLoop(loop);
+                    }
+                }
+            }
+        }
+
+        graph.rank(sourceFile);
+        for (ExtSourceFile root : roots) {
+            // ranked files are reachable from root source file or from a ranked entry
+            if (root != sourceFile && root.getRank() == 0) {
+                graph.rank(root);
+            }
+        }
+    }
+
+    /**
+     * Print dependency loop warning
+     * 
+     *   example: 'A' -> 'B' -> 'A' with all loop members listed
+     * 
+     * @param List<ExtSourceFile> loop
+     */
+    public void printDependencyLoop(List<ExtSourceFile> loop) {
+        StringBuilder msg = new StringBuilder();
+
+        msg.append("Dependency loop of " + loop.size() + " files found. "
+                + "Ranked by discovery order, please check dependency chain.\n");
+
+        String arrow = "";
+        for (ExtSourceFile sourceFile : graph.getDependencyLoopChain(loop)) {
+            msg.append(arrow + "'" + sourceFile.getExtClass() + "'. File : " + sourceFile.getWebPath() + "\n");
+            arrow = "  -> ";
+        }
+
+        printMsg(msg.toString(), "warning");
+        this.main.warnings++;
+    }
+    
+    /**
+     * Minify source file on pool thread
+     * 
+     * @param ForkJoinPool pool
+     * @param ExtSourceFile sourceFile
+     * @param ExtSourceMap.Mappings mappings source map mappings or null
+     * @return Future<String> minified code
+     */
+    public Future<String> minifySourceFile(ForkJoinPool pool, final ExtSourceFile sourceFile, 
+            final ExtSourceMap.Mappings mappings) {
+        final ExtTransformCache transformCache = this.transformCache;
+
+        return pool.submit(new Callable<String>() {
+            public String call() {
+                String code = transformCache != null ? transformCache.get(sourceFile, mappings) : null;
+
+                if (code == null) {
+                    code = ExtJsMinifier.minify(sourceFile.getContents(), mappings);
+                    if (transformCache != null) {
+                        transformCache.put(sourceFile, code, mappings);
+                    }
+                }
+                return code;
+            }
+        });
+    }
+
+    /**
+     * Get fingerprint of transform settings
+     * 
+     *   minified code of source files is cached for the same settings only
+     * 
+     * @return String
+     */
+    public String getTransformFingerprint() {
+        return "minify" + ExtJsMinifier.VERSION + ";" + ExtappMain.charset;
+    }
+
+    /**
+     * Load transform (minify) cache
+     * 
+     *   cache errors do not break the build
+     */
+    public void loadTransformCache() {
+        this.transformCache = this.main.getTransformCache(getTransformFingerprint());
+
+        if (this.transformCache != null) {
+            try {
+                this.transformCache.load();
+            } catch (IOException e) {
+                printMsg("Minify cache file is broken and will be rebuilt : " + this.transformCache.getFile().getPath() + "\n", "warning");
+                this.main.warnings++;
+            }
+        }
+    }
+
+    /**
+     * Save transform (minify) cache
+     * 
+     *   cache errors do not break the build
+     * 
+     * @param int hits cache hits at build start
+     * @param int misses cache misses at build start
+     */
+    public void saveTransformCache(int hits, int misses) {
+        if (this.transformCache != null) {
+            hits = this.transformCache.getHits() - hits;
+            misses = this.transformCache.getMisses() - misses;
+            this.main.getReport().set("minifyHits", hits);
+            this.main.getReport().set("minifyMisses", misses);
+
+            try {
+                this.transformCache.save();
+                printMsg("Minify cache : " + hits + " hits, " + misses + " misses");
+            } catch (IOException e) {
+                printMsg("Can not save minify cache file : " + e.getMessage() + "\n", "warning");
+                this.main.warnings++;
+            }
+        }
+    }
+
+    /**
+     * Output bundle
+     * 
+     *   listed in bundle manifest, file is relative to manifest
+     * 
+     */
+    static class Bundle {
+        String name;
+        String file;
+        List<String> entries = new ArrayList<String>();
+        List<String> files = new ArrayList<String>();
+
+        transient String filepath;
+        transient List<ExtSourceFile> sourceFiles = new ArrayList<ExtSourceFile>();
+
+        Bundle(String name, String filepath) {
+            this.name = name;
+            this.filepath = filepath;
+            this.file = new File(filepath).getName();
+        }
+
+        void add(ExtSourceFile sourceFile) {
+            files.add(sourceFile.getWebPath());
+            sourceFiles.add(sourceFile);
+        }
+    }
+
+    /**
+     * Bundle manifest
+     * 
+     *   bundles in load order : common bundle first
+     * 
+     */
+    static class BundleManifest {
+        List<Bundle> bundles = new ArrayList<Bundle>();
+    }
+
+    /**
+     * Split ranged source files into bundles
+     * 
+     * - common bundle (output file) : reachable from root source file without passing bundle entries,
+     *   or reachable from entries of more than one bundle
+     * - entry bundles : reachable from entries of this bundle only
+     * - each bundle keeps rank order
+     * 
+     * @param ExtSourceFile root root source file
+     * @param List<ExtSourceFile> rangedFiles source files in rank order
+     * @return BundleManifest
+     */
+    public BundleManifest splitBundles(ExtSourceFile root, List<ExtSourceFile> rangedFiles) {
+        BundleManifest manifest = new BundleManifest();
+        Set<ExtSourceFile> entries = new HashSet<ExtSourceFile>();
+        Map<ExtSourceFile, Bundle> fileBundles = new HashMap<ExtSourceFile, Bundle>();
+        Set<ExtSourceFile> noStops = Collections.emptySet();
+
+        for (List<ExtSourceFile> bundleEntryFiles : bundleEntries.values()) {
+            entries.addAll(bundleEntryFiles);
+        }
+        entries.remove(root);
+
+        Bundle common = new Bundle("common", this.main.getOutputFilepath());
+        manifest.bundles.add(common);
+        for (ExtSourceFile sourceFile : graph.getReachableSourceFiles(root, entries)) {
+            fileBundles.put(sourceFile, common);
+        }
+
+        for (Entry<String, List<ExtSourceFile>> bundleEntry : bundleEntries.entrySet()) {
+            Bundle bundle = new Bundle(bundleEntry.getKey(), this.main.getBundleFilepath(bundleEntry.getKey()));
+            Set<ExtSourceFile> reachable = new HashSet<ExtSourceFile>();
+
+            for (ExtSourceFile entry : bundleEntry.getValue()) {
+                bundle.entries.add(entry.getExtClass());
+                reachable.addAll(graph.getReachableSourceFiles(entry, noStops));
+            }
+            for (ExtSourceFile sourceFile : reachable) {
+                Bundle fileBundle = fileBundles.get(sourceFile);
+                fileBundles.put(sourceFile, fileBundle == null ? bundle : common);
+            }
+            manifest.bundles.add(bundle);
+        }
+
+        for (ExtSourceFile sourceFile : rangedFiles) {
+            Bundle bundle = fileBundles.get(sourceFile);
+            (bundle != null ? bundle : common).add(sourceFile);
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Write source files to output file
+     * 
+     * - minify source files in parallel (a few files ahead of writing)
+     * - stream to temporary output file
+     * - stream source map (if enabled) while writing
+     * - compress gzipped output file (if enabled) while writing
+     * 
+     *   writers are committed by caller when all output files are written
+     * 
+     * @param ForkJoinPool pool minify and gzip pool or null
+     * @param String filepath output file
+     * @param List<ExtSourceFile> files source files in rank order
+     * @param List<ExtOutputWriter> writers
+     * @param List<ExtSourceMap> sourceMaps
+     * @return ExtOutputWriter writer of output file (named by content hash if enabled)
+     * @throws IOException
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public ExtOutputWriter writeResults(ForkJoinPool pool, String filepath, List<ExtSourceFile> files,
+            List<ExtOutputWriter> writers, List<ExtSourceMap> sourceMaps) 
+            throws IOException, InterruptedException, ExecutionException {
+        ExtOutputWriter writer = createWriter(filepath, ExtappMain.charset, this.main.isContentHash(), 
+                this.main.isGzip() ? pool : null);
+        ExtSourceMap sourceMap = null;
+        writers.add(writer);
+
+        if (this.main.isSourceMap()) {
+            sourceMap = new ExtSourceMap(createWriter(filepath + ".map", "UTF-8", false, null), new File(filepath).getName());
+            sourceMaps.add(sourceMap);
+        }
+
+        Iterator<ExtSourceFile> minifyFiles = files.iterator();
+        LinkedList<Future<String>> minified = new LinkedList<Future<String>>();
+        LinkedList<ExtSourceMap.Mappings> minifiedMappings = new LinkedList<ExtSourceMap.Mappings>();
+        int minifyWindow = this.main.getThreads() * 4;
+
+        for (ExtSourceFile sourceFile : files) {
+            if (this.main.getDelimiter()){
+                writer.write("\n\n/* ----- " + sourceFile.getWebPath() + " ----- */\n\n");
+            }
+
+            if (this.main.isMinify()) {
+                while (minified.size() < minifyWindow && minifyFiles.hasNext()) {
+                    ExtSourceMap.Mappings mappings = sourceMap != null ? new ExtSourceMap.Mappings() : null;
+                    minified.add(minifySourceFile(pool, minifyFiles.next(), mappings));
+                    minifiedMappings.add(mappings);
+                }
+                String code = minified.removeFirst().get();
+                ExtSourceMap.Mappings mappings = minifiedMappings.removeFirst();
+
+                if (sourceMap != null) {
+                    sourceMap.addMappings(writer.getLine(), writer.getColumn(), 
+                            sourceMap.addSource(sourceFile.getWebPath()), mappings);
+                }
+                writer.write(code);
+                writer.write("\n");
+            } else if (sourceMap != null) {
+                String code = sourceFile.getContents();
+
+                sourceMap.addLineMappings(writer.getLine(), writer.getColumn(), 
+                        sourceMap.addSource(sourceFile.getWebPath()), code);
+                writer.write(code);
+                writer.write("\n\n");
+            } else {
+                writer.write(sourceFile);
+                writer.write("\n\n");
+            }
+
+            this.main.getReport().add("bytesRead", sourceFile.getSize());
+            printMsg(sourceFile.getRank() + " : " + sourceFile.getWebPath());
+        }
+
+        // content hash is taken before source map url : map file is named after hashed output file
+        File file = writer.hashFile();
+        if (sourceMap != null) {
+            sourceMap.getWriter().setFile(new File(file.getPath() + ".map"));
+            writer.write("//# sourceMappingURL=" + file.getName() + ".map\n");
+        }
+        return writer;
+    }
+
+    /**
+     * Create output writer
+     * 
+     * - in memory when outputs are kept in memory
+     * - with content hash : unchanged files are not replaced
+     * 
+     * @param String filepath
+     * @param String charset
+     * @param Boolean hashed name file by content hash
+     * @param ForkJoinPool gzipPool write gzipped file too, or null
+     * @return ExtOutputWriter
+     * @throws IOException
+     */
+    public ExtOutputWriter createWriter(String filepath, String charset, Boolean hashed, ForkJoinPool gzipPool) 
+            throws IOException {
+        ExtOutputWriter writer = new ExtOutputWriter(filepath, charset, this.main.isInMemory(), hashed, gzipPool);
+        writer.setSkipUnchanged(this.main.isContentHash());
+        return writer;
+    }
+
+    /**
+     * Add output file to hash manifest
+     * 
+     * @param Map<String, String> hashedFiles
+     * @param String name output file name
+     * @param ExtOutputWriter writer hashed writer of output file
+     */
+    private void addHashedFile(Map<String, String> hashedFiles, String name, ExtOutputWriter writer) {
+        hashedFiles.put(name, writer.getFile().getName());
+        if (this.main.isSourceMap()) {
+            hashedFiles.put(name + ".map", writer.getFile().getName() + ".map");
+        }
+    }
+
+    /**
+     * Collect written output files
+     * 
+     * @param List<ExtOutputWriter> writers
+     * @param List<ExtSourceMap> sourceMaps
+     * @return List<File>
+     */
+    private List<File> collectOutputFiles(List<ExtOutputWriter> writers, List<ExtSourceMap> sourceMaps) {
+        List<File> outputFiles = new ArrayList<File>();
+
+        for (ExtOutputWriter writer : writers) {
+            outputFiles.add(writer.getFile());
+            if (writer.getGzipFile() != null) {
+                outputFiles.add(writer.getGzipFile());
+            }
+        }
+        for (ExtSourceMap sourceMap : sourceMaps) {
+            outputFiles.add(sourceMap.getWriter().getFile());
+        }
+        return outputFiles;
+    }
+
+    private void printUnchanged(ExtOutputWriter writer) {
+        if (writer.isSkipped()) {
+            printMsg("Unchanged : " + writer.getFile().getName());
+        }
+    }
+
+    /**
+     * Collect outputs kept in memory
+     * 
+     * @param List<ExtOutputWriter> writers
+     * @param List<ExtSourceMap> sourceMaps
+     */
+    private void collectOutputs(List<ExtOutputWriter> writers, List<ExtSourceMap> sourceMaps) {
+        Map<String, byte[]> outputs = new HashMap<String, byte[]>();
+
+        for (ExtOutputWriter writer : writers) {
+            outputs.put(writer.getFile().getPath(), writer.getBytes());
+            if (writer.getGzipBytes() != null) {
+                outputs.put(writer.getGzipFile().getPath(), writer.getGzipBytes());
+            }
+        }
+        for (ExtSourceMap sourceMap : sourceMaps) {
+            outputs.put(sourceMap.getWriter().getFile().getPath(), sourceMap.getWriter().getBytes());
+        }
+        this.outputs = outputs;
+    }
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Get outputs kept in memory
+     * 
+     * @return Map<String, byte[]> absolute output file path : bytes, or null if not built
+     */
+    public Map<String, byte[]> getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Get content hash of ranged source files
+     * 
+     *   MD5 of web paths, content hashes and dependencies in rank order : 
+     *   same hash builds the same outputs (dependencies decide bundles)
+     * 
+     * @return String
+     */
+    public String getContentHash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+
+            for (ExtSourceFile sourceFile : rangedSourceFiles) {
+                digest.update(sourceFile.getWebPath().getBytes(ExtappMain.charset));
+                digest.update((byte) 0);
+                if (sourceFile.getHash() != null) {
+                    digest.update(sourceFile.getHash());
+                }
+                for (ExtSourceFile depSourceFile : graph.getDependencies(sourceFile)) {
+                    digest.update((byte) 1);
+                    digest.update(depSourceFile.getWebPath().getBytes(ExtappMain.charset));
+                }
+                digest.update((byte) 0);
+            }
+            return String.format("%032x", new BigInteger(1, digest.digest()));
+
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     *  Finish results
+     *  
+     *  - range source files
+     *  - write output file or split bundles and their manifest
+     *  - replace output files when all of them are written
+     *   
+     * @param ExtSourceFile root root source file
+     */
+    public void finishResults(ExtSourceFile root) {
+        List<ExtOutputWriter> writers = new ArrayList<ExtOutputWriter>();
+        List<ExtSourceMap> sourceMaps = new ArrayList<ExtSourceMap>();
+        ForkJoinPool pool = null;
+
+        try {
+            List<ExtSourceFile> rangedFiles = rangedSourceFiles;
+
+            if (this.main.isMinify() || this.main.isGzip()) {
+                pool = this.main.getPool() != null ? this.main.getPool() : new ForkJoinPool(this.main.getThreads());
+            }
+
+            this.transformCache = null;
+            if (this.main.isMinify()) {
+                loadTransformCache();
+            }
+            int transformHits = this.transformCache != null ? this.transformCache.getHits() : 0;
+            int transformMisses = this.transformCache != null ? this.transformCache.getMisses() : 0;
+    
+            printSection("Building ext app...");
+            printMsg("-- rank : extClass --");
+
+            // output file names : content hashed file names
+            outputFile = null;
+            outputFiles = null;
+            Map<String, String> hashedFiles = new LinkedHashMap<String, String>();
+
+            if (this.config.isSplitBundles()) {
+                BundleManifest manifest = splitBundles(root, rangedFiles);
+
+                for (Bundle bundle : manifest.bundles) {
+                    printMsg("-- bundle : " + bundle.name + " : " + bundle.file + " --");
+                    ExtOutputWriter writer = writeResults(pool, bundle.filepath, bundle.sourceFiles, writers, sourceMaps);
+                    addHashedFile(hashedFiles, bundle.file, writer);
+                    bundle.file = writer.getFile().getName();
+                    if (outputFile == null) {
+                        outputFile = writer.getFile();
+                    }
+                }
+
+                ExtOutputWriter manifestWriter = createWriter(this.main.getBundleManifestFilepath(), ExtappMain.charset, false, null);
+                writers.add(manifestWriter);
+                manifestWriter.write(gs.toJson(manifest) + "\n");
+            } else {
+                ExtOutputWriter writer = writeResults(pool, this.main.getOutputFilepath(), rangedFiles, writers, sourceMaps);
+                addHashedFile(hashedFiles, new File(this.main.getOutputFilepath()).getName(), writer);
+                outputFile = writer.getFile();
+            }
+
+            if (this.main.isContentHash()) {
+                ExtOutputWriter manifestWriter = createWriter(this.main.getHashManifestFilepath(), ExtappMain.charset, false, null);
+                writers.add(manifestWriter);
+                manifestWriter.write(gs.toJson(hashedFiles) + "\n");
+            }
+
+            for (ExtSourceMap sourceMap : sourceMaps) {
+                sourceMap.commit();
+                printUnchanged(sourceMap.getWriter());
+                this.main.getReport().add("bytesWritten", sourceMap.getSize());
+            }
+            for (ExtOutputWriter writer : writers) {
+                writer.commit();
+                printUnchanged(writer);
+                this.main.getReport().add("bytesWritten", writer.getSize());
+            }
+            if (this.main.isInMemory()) {
+                collectOutputs(writers, sourceMaps);
+            } else {
+                outputFiles = collectOutputFiles(writers, sourceMaps);
+            }
+            saveTransformCache(transformHits, transformMisses);
+            
+            printSection("Extapp build complete!");
+            printStatistics();
+            
+        } catch (IOException | InterruptedException | ExecutionException | IllegalStateException ex) {
+            for (ExtOutputWriter writer : writers) {
+                writer.abort();
+            }
+            for (ExtSourceMap sourceMap : sourceMaps) {
+                sourceMap.abort();
+            }
+            this.main.fail(getErrorMessage(ex));
+        } finally {
+            if (pool != null && pool != this.main.getPool()) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Get artifact cache key
+     * 
+     *   MD5 of build options, config (dependency settings, configured paths, bundles), minifier settings,
+     *   source and output file and content hash of ranked source files
+     * 
+     * @return String
+     */
+    public String getArtifactKey() {
+        StringBuilder key = new StringBuilder();
+
+        key.append("artifact" + ExtArtifactCache.VERSION + ";" + this.main.getDelimiter() + ";" + this.main.isMinify() 
+                + ";" + this.main.isSourceMap() + ";" + this.main.isContentHash() + ";" + this.main.isGzip() + ";");
+        key.append(this.main.getSourceFilename() + ";" + this.main.getOutputFilename() + ";");
+        key.append(getDependencyFingerprint() + ";");
+        if (this.main.isMinify()) {
+            key.append(getTransformFingerprint() + ";");
+        }
+        for (Entry<String, String> path : new TreeMap<String, String>(this.config.getConfiguredPaths()).entrySet()) {
+            key.append(path.getKey() + "=" + path.getValue() + ",");
+        }
+        key.append(";" + gs.toJson(this.config.getBundles()) + ";" + this.config.isSafeRank() + ";");
+        key.append(getContentHash());
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return String.format("%032x", new BigInteger(1, digest.digest(key.toString().getBytes(ExtappMain.charset))));
+
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Restore output files from artifact cache
+     * 
+     *   cache errors do not break the build : outputs are built
+     * 
+     * @return Boolean true if output files were restored
+     */
+    public Boolean restoreArtifacts() {
+        artifactCache = this.main.getArtifactCacheDir() != null ? new ExtArtifactCache(this.main, this.main.getArtifactCacheDir()) : null;
+        if (artifactCache == null) {
+            return false;
+        }
+
+        try {
+            artifactKey = getArtifactKey();
+
+            String output = artifactCache.restore(artifactKey);
+            if (output != null) {
+                outputFile = new File(this.main.getPath(output));
+                outputFiles = null;
+                printMsg("Artifact : " + artifactKey);
+                this.main.getReport().add("artifactHits", 1);
+                printSection("Outputs restored from artifact cache");
+                printStatistics();
+                return true;
+            }
+        } catch (IOException e) {
+            printMsg("Can not restore artifact : " + e.getMessage() + "\n", "warning");
+            this.main.warnings++;
+        }
+        return false;
+    }
+
+    /**
+     * Store output files in artifact cache
+     * 
+     *   cache errors do not break the build
+     */
+    public void storeArtifacts() {
+        if (artifactCache == null || outputFiles == null) {
+            return;
+        }
+
+        try {
+            artifactCache.store(artifactKey, outputFile, outputFiles);
+            printMsg("Artifact cache : stored " + artifactKey);
+        } catch (IOException e) {
+            printMsg("Can not store artifact : " + e.getMessage() + "\n", "warning");
+            this.main.warnings++;
+        }
+    }
+
+    /**
+     * Save dependency cache
+     * 
+     *   cache errors do not break the build
+     */
+    public void saveCache() {
+        if (this.cache != null) {
+            try {
+                this.cache.save();
+                printMsg("Cache : " + this.cache.getHits() + " hits, " + this.cache.getMisses() + " misses");
+            } catch (IOException e) {
+                printMsg("Can not save cache file : " + e.getMessage() + "\n", "warning");
+                this.main.warnings++;
+            }
+        }
+    }
+
+    /**
+     * Build from loaded source files
+     * 
+     * - link dependency graph
+     * - rank source files
+     * - write output file
+     * 
+     * @param ExtSourceFile sourceFile root source file
+     */
+    public void build(ExtSourceFile sourceFile) {
+        ExtBuildReport report = this.main.getReport();
+
+        if (sourceFile.isFile()) {
+            long start = System.nanoTime();
+            graph.addSourceFile(sourceFile);
+            processSourceFiles(sourceFile);
+            processBundleEntries();
+            report.addTime("link", System.nanoTime() - start);
+
+            start = System.nanoTime();
+            rankSourceFiles(sourceFile);
+            rangedSourceFiles = graph.getRankedSourceFiles();
+            report.addTime("rank", System.nanoTime() - start);
+
+            saveCache();
+
+            start = System.nanoTime();
+            if (this.main.isInMemory()) {
+                // outputs in memory are rebuilt only when ranged source files are changed
+                String contentHash = getContentHash();
+                if (outputs == null || !contentHash.equals(this.contentHash)) {
+                    finishResults(sourceFile);
+                    this.contentHash = contentHash;
+                } else {
+                    printSection("Outputs are up to date");
+                    printStatistics();
+                }
+            } else if (!restoreArtifacts()) {
+                finishResults(sourceFile);
+                storeArtifacts();
+            }
+            report.addTime("write", System.nanoTime() - start);
+
+        } else {
+            printMsg("Source file not found : " + sourceFile.getWebPath() + "\n", "error");
+            this.main.errors++;
+            printSection("Extapp build failed!");
+            printStatistics();
+        }
+
+        finishReport();
+        this.main.writeReport();
+    }
+
+    /**
+     * Finish build report
+     * 
+     *   counters of the whole build (files, cache, max rank, messages)
+     */
+    public void finishReport() {
+        ExtBuildReport report = this.main.getReport();
+        int maxRank = 0;
+
+        for (ExtSourceFile sourceFile : this.sourceFiles.values()) {
+            maxRank = Math.max(maxRank, sourceFile.getRank());
+        }
+
+        report.set("files", this.sourceFiles.size());
+        report.set("maxRank", maxRank);
+        report.set("errors", this.main.errors);
+        report.set("warnings", this.main.warnings);
+        report.set("threads", this.main.getThreads());
+        if (this.cache != null) {
+            report.set("cacheHits", this.cache.getHits() - cacheHits);
+            report.set("cacheMisses", this.cache.getMisses() - cacheMisses);
+        }
+        report.addTime("total", (System.currentTimeMillis() - this.main.start) * 1000000L);
+    }
+
+    /**
+     * Rebuild after source files were changed
+     * 
+     * - reload changed source files (new dependencies are loaded too)
+     * - relink and rank dependency graph in memory
+     * - write output file
+     * 
+     * @param Collection<ExtSourceFile> changedFiles loaded source files which were changed
+     */
+    public void rebuild(Collection<ExtSourceFile> changedFiles) {
+        List<LoadSourceFileTask> tasks = new ArrayList<LoadSourceFileTask>();
+
+        this.main.start = System.currentTimeMillis();
+        this.main.errors = 0;
+        this.main.warnings = 0;
+        this.main.resetReport();
+        startReport();
+
+        // changed aliases : references of all loaded files are resolved again
+        if (updateAliasIndex()) {
+            Set<ExtSourceFile> files = new LinkedHashSet<ExtSourceFile>(changedFiles);
+            for (ExtSourceFile sourceFile : loadedFiles.values()) {
+                if (sourceFile.getReferences() != null && !sourceFile.getReferences().isEmpty()) {
+                    files.add(sourceFile);
+                }
+            }
+            changedFiles = files;
+        }
+
+        for (ExtSourceFile sourceFile : changedFiles) {
+            loadedFiles.remove(sourceFile.getWebPath());
+            tasks.add(new LoadSourceFileTask(sourceFile.getExtClass(), sourceFile.getFile().getPath(), 
+                    sourceFile.getWebPath()));
+        }
+
+        printSection("Processing changed source files...");
+        try {
+            loadSourceFiles(tasks);
+        } catch (IllegalStateException e) {
+            // failed build : changed files stay loaded, so they are watched and reloaded on next change
+            for (ExtSourceFile sourceFile : changedFiles) {
+                if (!loadedFiles.containsKey(sourceFile.getWebPath())) {
+                    loadedFiles.put(sourceFile.getWebPath(), sourceFile);
+                }
+            }
+            throw e;
+        }
+        reset();
+        build(loadedFiles.get(this.main.getSourceFilename()));
+    }
+
+    /**
+     * Update alias index (if reference types are enabled)
+     * 
+     *   index errors do not break the build : references are resolved by class names only
+     * 
+     * @return Boolean true if aliases were changed
+     */
+    public Boolean updateAliasIndex() {
+        if (aliasIndex == null) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Boolean changed = aliasIndex.update();
+            printMsg("Alias index : " + aliasIndex.size() + " aliases");
+            return changed;
+        } catch (IOException e) {
+            printMsg("Alias index is incomplete : " + e.getMessage() + "\n", "warning");
+            this.main.warnings++;
+            return false;
+        } finally {
+            this.main.getReport().addTime("resolve", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Start build report
+     * 
+     */
+    public void startReport() {
+        if (this.cache != null) {
+            cacheHits = this.cache.getHits();
+            cacheMisses = this.cache.getMisses();
+        }
+    }
+
+    /**
+     * Get loaded source files changed on disk
+     * 
+     *   size, modification time or existence changed (for rebuilds without watcher)
+     * 
+     * @return List<ExtSourceFile>
+     */
+    public List<ExtSourceFile> getChangedFiles() {
+        List<ExtSourceFile> changedFiles = new ArrayList<ExtSourceFile>();
+
+        for (ExtSourceFile sourceFile : loadedFiles.values()) {
+            File file = sourceFile.getFile();
+            Boolean isFile = file.isFile();
+
+            if (!isFile.equals(sourceFile.isFile()) || (isFile 
+                    && (file.length() != sourceFile.getSize() || file.lastModified() != sourceFile.getLastModified()))) {
+                changedFiles.add(sourceFile);
+            }
+        }
+        return changedFiles;
+    }
+
+    public void init() {
+        printSection("Processing source files...");
+        startReport();
+
+        if (this.cache != null) {
+            try {
+                this.cache.load();
+            } catch (IOException e) {
+                printMsg("Cache file is broken and will be rebuilt : " + this.cache.getFile().getPath() + "\n", "warning");
+                this.main.warnings++;
+            }
+        }
+
+        for (String type : this.scanner.getTypes()) {
+            if (isReferenceDependencyType(type)) {
+                aliasIndex = new ExtAliasIndex(this.main, this.config);
+                break;
+            }
+        }
+        updateAliasIndex();
+
+        String sourceFileWebPath = this.main.getSourceFilename();
+        loadSourceFiles(this.config.getAppName(), this.main.getSourceFilepath(), sourceFileWebPath);
+        build(loadedFiles.get(sourceFileWebPath));
     }
 }
@@ -0,0 +1,195 @@
+package net.prime.extapp;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source files watcher
+ *
+ *   watches configured paths roots and folders of loaded source files
+ *   and rebuilds output when loaded source files are changed
+ *
+ */
+public class ExtFileWatcher {
+
+    private static final long QUIET_PERIOD = 20; // ms to collect events of one save
+
+    private ExtappMain main = null;
+    private ExtappConfig config = null;
+    private ExtFileCombiner combiner = null;
+
+    private WatchService watchService = null;
+    private Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+    private Set<Path> dirs = new HashSet<Path>();
+
+    ExtFileWatcher(ExtappMain extappMain, ExtappConfig config, ExtFileCombiner combiner) {
+        this.main = extappMain;
+        this.config = config;
+        this.combiner = combiner;
+    }
+
+    /**
+     * Register folder and its sub-folders
+     *
+     * @param Path dir
+     * @throws IOException
+     */
+    public void registerAll(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public void register(Path dir) throws IOException {
+        if (dirs.add(dir)) {
+            keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+        }
+    }
+
+    /**
+     * Register configured paths roots
+     *
+     * @throws IOException
+     */
+    public void registerRoots() throws IOException {
+        File appFolder = new File(this.main.getBasePath() + this.config.getAppFolder());
+        if (appFolder.isDirectory()) {
+            registerAll(appFolder.toPath().toAbsolutePath().normalize());
+        }
+
+        for (String path : this.config.getPaths().values()) {
+            File dir = new File(this.main.getBasePath() + path);
+            if (dir.isDirectory()) {
+                registerAll(dir.toPath().toAbsolutePath().normalize());
+            }
+        }
+    }
+
+    /**
+     * Register folders of loaded source files (outside of paths roots)
+     *
+     * @throws IOException
+     */
+    public void registerSourceFileFolders() throws IOException {
+        for (ExtSourceFile sourceFile : this.combiner.getLoadedFiles()) {
+            File dir = sourceFile.getFile().getAbsoluteFile().getParentFile();
+            if (dir != null && dir.isDirectory()) {
+                register(dir.toPath().normalize());
+            }
+        }
+    }
+
+    /**
+     * Get loaded source files by absolute path
+     *
+     * @return Map<Path, ExtSourceFile>
+     */
+    public Map<Path, ExtSourceFile> getLoadedFiles() {
+        Map<Path, ExtSourceFile> loadedFiles = new HashMap<Path, ExtSourceFile>();
+        for (ExtSourceFile sourceFile : this.combiner.getLoadedFiles()) {
+            loadedFiles.put(sourceFile.getFile().toPath().toAbsolutePath().normalize(), sourceFile);
+        }
+        return loadedFiles;
+    }
+
+    /**
+     * Collect changed source files of watch key events
+     *
+     * @param WatchKey key
+     * @param Map<Path, ExtSourceFile> loadedFiles
+     * @param Map<Path, ExtSourceFile> changedFiles
+     * @throws IOException
+     */
+    private void collectChangedFiles(WatchKey key, Map<Path, ExtSourceFile> loadedFiles,
+            Map<Path, ExtSourceFile> changedFiles) throws IOException {
+        Path dir = keys.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || dir == null) {
+                changedFiles.putAll(loadedFiles);
+                continue;
+            }
+
+            Path path = dir.resolve((Path) event.context()).normalize();
+            ExtSourceFile sourceFile = loadedFiles.get(path);
+
+            if (sourceFile != null) {
+                changedFiles.put(path, sourceFile);
+            } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                registerAll(path);
+            }
+        }
+
+        if (!key.reset()) {
+            dirs.remove(keys.remove(key));
+        }
+    }
+
+    /**
+     * Watch source files and rebuild on changes
+     *
+     *   runs until the process is stopped,
+     *   failed rebuilds (like unreadable file while saving) are reported and watching goes on
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void watch() throws IOException, InterruptedException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerRoots();
+        registerSourceFileFolders();
+
+        Path outputPath = new File(this.main.getOutputFilepath()).toPath().toAbsolutePath().normalize();
+        this.main.printSection("Watching for changes... (" + keys.size() + " folders)");
+        this.main.setExitOnError(false);
+
+        while (true) {
+            WatchKey key = watchService.take();
+            Map<Path, ExtSourceFile> loadedFiles = getLoadedFiles();
+            Map<Path, ExtSourceFile> changedFiles = new LinkedHashMap<Path, ExtSourceFile>();
+
+            while (key != null) {
+                collectChangedFiles(key, loadedFiles, changedFiles);
+                key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+            }
+            changedFiles.remove(outputPath);
+
+            if (!changedFiles.isEmpty()) {
+                for (Path path : changedFiles.keySet()) {
+                    this.main.printMsg("Changed : " + path);
+                }
+                try {
+                    this.combiner.rebuild(changedFiles.values());
+                } catch (IllegalStateException e) {
+                    this.main.printMsg(e.getMessage() + "\n", "error");
+                    this.main.errors++;
+                }
+                registerSourceFileFolders();
+            }
+        }
+    }
+}
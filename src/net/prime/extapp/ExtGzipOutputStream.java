@@ -0,0 +1,196 @@
+package net.prime.extapp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Parallel gzip output stream
+ *
+ *   output is split into blocks which are deflated in parallel (like pigz) :
+ *
+ * - each block is deflated with last 32K of previous block as dictionary,
+ *   so compression is close to single stream compression
+ * - blocks end with sync flush (byte aligned), last block finishes deflate stream
+ * - deflated blocks are written in order, a few blocks ahead are compressed meanwhile
+ * - output is one gzip member : any gzip reader can read it
+ *
+ */
+public class ExtGzipOutputStream extends OutputStream {
+
+    private static final int BLOCK_SIZE = 1 << 17;
+    private static final int DICTIONARY_SIZE = 1 << 15;
+    private static final int LEVEL = Deflater.BEST_COMPRESSION;
+
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 2, (byte) 0xff };
+
+    private OutputStream out = null;
+    private ForkJoinPool pool = null;
+    private int window = 1; // blocks compressed ahead of writing
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockSize = 0;
+    private byte[] dictionary = null;
+
+    private CRC32 crc = new CRC32();
+    private long size = 0;
+    private LinkedList<Future<byte[]>> deflated = new LinkedList<Future<byte[]>>();
+    private Boolean closed = false;
+
+    /**
+     * Creates a new parallel gzip output stream
+     *
+     * @param OutputStream out
+     * @param ForkJoinPool pool compression pool
+     * @throws IOException
+     */
+    ExtGzipOutputStream(OutputStream out, ForkJoinPool pool) throws IOException {
+        this.out = out;
+        this.pool = pool;
+        this.window = pool.getParallelism() * 2;
+
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[blockSize++] = (byte) b;
+        if (blockSize == BLOCK_SIZE) {
+            submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, BLOCK_SIZE - blockSize);
+            System.arraycopy(b, off, block, blockSize, n);
+            blockSize += n;
+            off += n;
+            len -= n;
+
+            if (blockSize == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Submit current block to compression pool
+     *
+     *   written blocks are awaited when window is full
+     *
+     * @param Boolean last last block finishes deflate stream
+     * @throws IOException
+     */
+    private void submitBlock(final Boolean last) throws IOException {
+        final byte[] input = Arrays.copyOf(block, blockSize);
+        final byte[] dict = dictionary;
+
+        crc.update(input, 0, input.length);
+        size += input.length;
+        if (input.length >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(input, input.length - DICTIONARY_SIZE, input.length);
+        }
+        blockSize = 0;
+
+        deflated.add(pool.submit(new Callable<byte[]>() {
+            public byte[] call() {
+                return deflate(input, dict, last);
+            }
+        }));
+
+        while (deflated.size() > (last ? 0 : window)) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Deflate block
+     *
+     * @param byte[] input
+     * @param byte[] dict dictionary or null (first block)
+     * @param Boolean last
+     * @return byte[] raw deflate data
+     */
+    private static byte[] deflate(byte[] input, byte[] dict, Boolean last) {
+        Deflater deflater = new Deflater(LEVEL, true);
+        byte[] buffer = new byte[input.length + (input.length >> 3) + 64];
+        int length = 0;
+
+        try {
+            if (dict != null) {
+                deflater.setDictionary(dict);
+            }
+            deflater.setInput(input);
+            if (last) {
+                deflater.finish();
+            }
+
+            while (true) {
+                length += deflater.deflate(buffer, length, buffer.length - length,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+
+                if (last ? deflater.finished() : length < buffer.length) {
+                    return Arrays.copyOf(buffer, length);
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        try {
+            out.write(deflated.removeFirst().get());
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Finish gzip member
+     *
+     *   compresses last block and writes CRC and size trailer
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (!closed) {
+            closed = true;
+            submitBlock(true);
+
+            long value = crc.getValue();
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (value >> (i * 8));
+                trailer[i + 4] = (byte) (size >> (i * 8));
+            }
+            out.write(trailer);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+}
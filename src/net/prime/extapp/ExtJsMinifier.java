@@ -0,0 +1,382 @@
+package net.prime.extapp;
+
+import java.util.BitSet;
+
+/**
+ * JS minifier
+ *
+ *   token-aware : comments and whitespaces are removed,
+ *   string, template and regular expression literals are kept as is
+ *
+ * - a space is kept only where two tokens would merge (like 'var a' or 'a - -b')
+ * - a line break is kept where automatic semicolon insertion may depend on it
+ *   (like 'return\nvalue' or 'a\n++b')
+ * - '/' after ')' is division, unless parenthesis closes condition of 'if', 'for', 'while' or 'with'
+ *
+ */
+public class ExtJsMinifier {
+
+    // minified code or mappings of the same code changed : bump to drop minify caches
+    static final int VERSION = 3;
+
+    /**
+     * Minify code
+     *
+     * @param String code
+     * @return String
+     */
+    public static String minify(String code) {
+        return minify(code, null);
+    }
+
+    /**
+     * Minify code and map each token to its source position
+     *
+     * @param String code
+     * @param ExtSourceMap.Mappings mappings or null
+     * @return String
+     */
+    public static String minify(String code, ExtSourceMap.Mappings mappings) {
+        int length = code.length();
+        StringBuilder out = new StringBuilder(length / 2);
+        int pos = 0;
+
+        boolean space = false;
+        boolean newline = false;
+        boolean regexAllowed = true;
+        boolean number = false; // last token was a number
+        boolean regex = false; // last token was a regular expression
+        boolean condition = false; // last token was 'if', 'for', 'while' or 'with'
+
+        // open parentheses : set if parenthesis starts a condition ('if (a) /re/.test(s)')
+        BitSet conditions = new BitSet();
+        int parens = 0;
+
+        // lines counted up to scanned positions (for mappings)
+        int srcLine = 0, srcLineStart = 0, srcScanned = 0;
+        int outLine = 0, outLineStart = 0, outScanned = 0;
+
+        while (pos < length) {
+            char c = code.charAt(pos);
+            char next = pos + 1 < length ? code.charAt(pos + 1) : 0;
+            int end;
+
+            if (isLineTerminator(c)) {
+                newline = true;
+                pos++;
+                continue;
+            } else if (isWhitespace(c)) {
+                space = true;
+                pos++;
+                continue;
+            } else if (c == '/' && next == '/') {
+                pos = skipLineComment(code, pos);
+                continue;
+            } else if (c == '/' && next == '*') {
+                end = code.indexOf("*/", pos + 2);
+                end = end != -1 ? end + 2 : length;
+                if (hasLineTerminator(code, pos, end)) {
+                    newline = true;
+                } else {
+                    space = true;
+                }
+                pos = end;
+                continue;
+            }
+
+            boolean tokenNumber = false;
+            boolean tokenRegex = false;
+            boolean tokenCondition = false;
+
+            if (c == '\'' || c == '"' || c == '`') {
+                end = skipString(code, pos);
+                regexAllowed = false;
+
+            } else if (c == '/' && regexAllowed) {
+                end = skipRegex(code, pos);
+                tokenRegex = true;
+                regexAllowed = false;
+
+            } else if (isIdentifierPart(c) || (c == '.' && next >= '0' && next <= '9')) {
+                end = pos + 1;
+                if ((c >= '0' && c <= '9') || c == '.') {
+                    end = skipNumber(code, pos);
+                    tokenNumber = true;
+                    regexAllowed = false;
+                } else {
+                    while (end < length && isIdentifierPart(code.charAt(end))) {
+                        end++;
+                    }
+                    regexAllowed = isKeyword(code, pos, end);
+                    tokenCondition = isConditionKeyword(code, pos, end);
+                }
+
+            } else if ((c == '+' || c == '-') && next == c) { // increment, decrement
+                end = pos + 2;
+
+            } else {
+                end = pos + 1;
+                regexAllowed = c != ')' && c != ']';
+
+                if (c == '(') {
+                    conditions.set(parens++, condition);
+                } else if (c == ')' && parens > 0) {
+                    regexAllowed = conditions.get(--parens); // statement follows condition
+                }
+            }
+
+            if (out.length() > 0) {
+                char last = out.charAt(out.length() - 1);
+
+                if (newline && isLineEnd(last) && isLineStart(c)) {
+                    out.append('\n');
+                } else if ((newline || space) && needsSpace(last, c, number, regex)) {
+                    out.append(' ');
+                }
+            }
+
+            if (mappings != null) {
+                for (; srcScanned < pos; srcScanned++) {
+                    if (code.charAt(srcScanned) == '\n') {
+                        srcLine++;
+                        srcLineStart = srcScanned + 1;
+                    }
+                }
+                for (; outScanned < out.length(); outScanned++) {
+                    if (out.charAt(outScanned) == '\n') {
+                        outLine++;
+                        outLineStart = outScanned + 1;
+                    }
+                }
+                mappings.add(outLine, out.length() - outLineStart, srcLine, pos - srcLineStart);
+            }
+            out.append(code, pos, end);
+
+            space = false;
+            newline = false;
+            number = tokenNumber;
+            regex = tokenRegex;
+            condition = tokenCondition;
+            pos = end;
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Check if tokens would merge without space
+     *
+     *   like 'var a', 'a + +b', '1 .toString()', 'a / /b/', '/b/ in a' or 'a < !--b'
+     *   (identifier after regular expression would be read as its flags)
+     *
+     */
+    private static boolean needsSpace(char last, char first, boolean number, boolean regex) {
+        return ((isIdentifierPart(last) || regex) && (isIdentifierPart(first) || (number && first == '.')))
+                || ((last == '+' || last == '-' || last == '/') && first == last)
+                || (last == '<' && first == '!');
+    }
+
+    /**
+     * Check for chars which may end a statement before line break
+     *
+     */
+    private static boolean isLineEnd(char c) {
+        return isIdentifierPart(c) || c == ')' || c == ']' || c == '}' || c == '+' || c == '-'
+                || c == '\'' || c == '"' || c == '`' || c == '/';
+    }
+
+    /**
+     * Check for chars which may start a statement after line break
+     *
+     */
+    private static boolean isLineStart(char c) {
+        return isIdentifierPart(c) || c == '(' || c == '[' || c == '{' || c == '+' || c == '-'
+                || c == '!' || c == '~' || c == '\'' || c == '"' || c == '`' || c == '/' || c == '.' || c == '#' || c == '@';
+    }
+
+    private static int skipLineComment(CharSequence code, int pos) {
+        int length = code.length();
+        pos += 2;
+        while (pos < length && !isLineTerminator(code.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean hasLineTerminator(CharSequence code, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (isLineTerminator(code.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skip string or template literal
+     *
+     * @param CharSequence code
+     * @param int pos position of opening quote
+     * @return int position after closing quote
+     */
+    private static int skipString(CharSequence code, int pos) {
+        int length = code.length();
+        char quote = code.charAt(pos++);
+
+        while (pos < length) {
+            char c = code.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == quote || (c == '\n' && quote != '`')) {
+                break;
+            } else if (quote == '`' && c == '$' && pos < length && code.charAt(pos) == '{') {
+                pos = skipTemplateExpression(code, pos + 1);
+            }
+        }
+        return Math.min(pos, length);
+    }
+
+    /**
+     * Skip template literal expression (may contain nested templates)
+     *
+     * @param CharSequence code
+     * @param int pos position after '${'
+     * @return int position after closing brace
+     */
+    private static int skipTemplateExpression(CharSequence code, int pos) {
+        int length = code.length();
+        int depth = 1;
+
+        while (pos < length) {
+            char c = code.charAt(pos);
+            if (c == '\'' || c == '"' || c == '`') {
+                pos = skipString(code, pos);
+            } else {
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}' && --depth == 0) {
+                    return pos + 1;
+                }
+                pos++;
+            }
+        }
+        return length;
+    }
+
+    private static int skipRegex(CharSequence code, int pos) {
+        int length = code.length();
+        boolean charClass = false;
+        pos++;
+
+        while (pos < length) {
+            char c = code.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == '[') {
+                charClass = true;
+            } else if (c == ']') {
+                charClass = false;
+            } else if ((c == '/' && !charClass) || c == '\n') {
+                break;
+            }
+        }
+        while (pos < length && isIdentifierPart(code.charAt(pos))) { // flags
+            pos++;
+        }
+        return Math.min(pos, length);
+    }
+
+    /**
+     * Skip number literal
+     *
+     *   decimal, hex, octal, binary and exponent forms
+     *
+     */
+    private static int skipNumber(CharSequence code, int pos) {
+        int length = code.length();
+        boolean hex = code.charAt(pos) == '0' && pos + 1 < length
+                && (code.charAt(pos + 1) == 'x' || code.charAt(pos + 1) == 'X');
+        pos++;
+
+        while (pos < length) {
+            char c = code.charAt(pos);
+            char prev = code.charAt(pos - 1);
+
+            if (isIdentifierPart(c) || c == '.') {
+                pos++;
+            } else if ((c == '+' || c == '-') && !hex && (prev == 'e' || prev == 'E')) {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Check for keywords which may be followed by regular expression literal
+     *
+     */
+    private static boolean isKeyword(CharSequence code, int start, int end) {
+        switch (end - start) {
+            case 2:
+                return regionMatches(code, start, "in") || regionMatches(code, start, "do");
+            case 3:
+                return regionMatches(code, start, "new");
+            case 4:
+                return regionMatches(code, start, "case") || regionMatches(code, start, "else")
+                        || regionMatches(code, start, "void");
+            case 5:
+                return regionMatches(code, start, "throw") || regionMatches(code, start, "yield");
+            case 6:
+                return regionMatches(code, start, "return") || regionMatches(code, start, "typeof")
+                        || regionMatches(code, start, "delete");
+            case 10:
+                return regionMatches(code, start, "instanceof");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check for keywords followed by condition in parentheses
+     *
+     */
+    private static boolean isConditionKeyword(CharSequence code, int start, int end) {
+        switch (end - start) {
+            case 2:
+                return regionMatches(code, start, "if");
+            case 3:
+                return regionMatches(code, start, "for");
+            case 4:
+                return regionMatches(code, start, "with");
+            case 5:
+                return regionMatches(code, start, "while");
+            default:
+                return false;
+        }
+    }
+
+    private static boolean regionMatches(CharSequence code, int start, String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (code.charAt(start + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\f' || c == '\u000B'
+                || (c > 127 && (Character.isSpaceChar(c) || c == '\uFEFF'));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '$' || c == '\\' || (c > 127 && Character.isJavaIdentifierPart(c));
+    }
+}
@@ -0,0 +1,139 @@
+package net.prime.extapp;
+
+import java.util.Map;
+
+/**
+ * Namespace trie
+ *
+ *   maps ext class namespaces (like 'Ext' or 'Ext.util') to values
+ *   and finds the longest namespace of an ext class in one walk without allocations
+ *
+ *   example: 'Ext.util.Format' is in namespaces 'Ext.util.Format', 'Ext.util' and 'Ext',
+ *            but not in 'Ext.ut'
+ *
+ *   built once and read only afterwards : safe for concurrent readers
+ *
+ */
+public class ExtNamespaceTrie<V> {
+
+    private Node<V> root = new Node<V>(0);
+
+    /**
+     * Trie node
+     *
+     *   one node per char, nodes of namespaces have values
+     *
+     */
+    public static class Node<V> {
+        private char[] chars = new char[0];
+        private Node<V>[] children = newNodes(0);
+        private V value = null;
+        private int length;
+
+        Node(int length) {
+            this.length = length;
+        }
+
+        /**
+         * Get namespace length
+         *
+         * @return int
+         */
+        public int getLength() {
+            return length;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        private Node<V> getChild(char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node<V> addChild(char c) {
+            Node<V> child = getChild(c);
+
+            if (child == null) {
+                child = new Node<V>(length + 1);
+
+                char[] newChars = new char[chars.length + 1];
+                Node<V>[] newChildren = newNodes(chars.length + 1);
+                System.arraycopy(chars, 0, newChars, 0, chars.length);
+                System.arraycopy(children, 0, newChildren, 0, chars.length);
+                newChars[chars.length] = c;
+                newChildren[chars.length] = child;
+
+                chars = newChars;
+                children = newChildren;
+            }
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newNodes(int size) {
+            return (Node<V>[]) new Node<?>[size];
+        }
+    }
+
+    /**
+     * Compile namespaces map into trie
+     *
+     * @param Map<String, V> namespaces
+     * @return ExtNamespaceTrie<V>
+     */
+    public static <V> ExtNamespaceTrie<V> compile(Map<String, V> namespaces) {
+        ExtNamespaceTrie<V> trie = new ExtNamespaceTrie<V>();
+
+        for (Map.Entry<String, V> namespace : namespaces.entrySet()) {
+            trie.put(namespace.getKey(), namespace.getValue());
+        }
+        return trie;
+    }
+
+    /**
+     * Put namespace value
+     *
+     * @param String namespace
+     * @param V value
+     */
+    public void put(String namespace, V value) {
+        Node<V> node = root;
+
+        for (int i = 0; i < namespace.length(); i++) {
+            node = node.addChild(namespace.charAt(i));
+        }
+        node.value = value;
+    }
+
+    /**
+     * Find the longest namespace of ext class
+     *
+     * @param CharSequence extClass
+     * @return Node<V> namespace node (with value and length) or null if not found
+     */
+    public Node<V> find(CharSequence extClass) {
+        Node<V> node = root;
+        Node<V> found = null;
+        int length = extClass.length();
+
+        for (int i = 0; i < length && node != null; i++) {
+            char c = extClass.charAt(i);
+
+            if (c == '.' && node.value != null) {
+                found = node;
+            }
+            node = node.getChild(c);
+        }
+
+        if (node != null && node.value != null) {
+            found = node;
+        }
+        return found;
+    }
+}
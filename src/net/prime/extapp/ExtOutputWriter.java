@@ -0,0 +1,407 @@
+package net.prime.extapp;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
+
+/**
+ * Output file writer
+ *
+ * - writes to temporary file next to output file
+ * - source files without transformation are copied by channel transfer
+ * - temporary file replaces output file on commit only
+ * - in memory : output is kept in memory (file is not written)
+ * - hashed : MD5 of output is computed while it is written and becomes part of file name,
+ *   existing file with same contents is not replaced
+ * - gzip : gzipped output file (<output file>.gz) is compressed in parallel while output is written
+ *
+ */
+public class ExtOutputWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HASH_LENGTH = 8; // hex digits of content hash in file name
+
+    private File file = null;
+    private File tmpFile = null;
+    private FileOutputStream stream = null;
+    private FileChannel channel = null;
+    private Writer writer = null;
+    private ByteArrayOutputStream memory = null;
+    private DigestOutputStream digestStream = null;
+    private OutputStream copyStream = null; // transferred files are copied to this stream (no channel transfer)
+
+    private File gzTmpFile = null;
+    private ExtGzipOutputStream gzStream = null;
+    private ByteArrayOutputStream gzMemory = null;
+
+    private Boolean hashed = false; // file is renamed by content hash
+    private Boolean skipUnchanged = false; // existing file with same contents is not replaced
+    private Boolean skipped = false;
+
+    // position of written text (transferred files are not counted)
+    private int line = 0;
+    private int column = 0;
+
+    private long size = 0; // bytes of committed file
+
+    /**
+     * Creates a new output writer
+     *
+     * @param String filepath output file
+     * @param String charset
+     * @throws IOException
+     */
+    ExtOutputWriter(String filepath, String charset) throws IOException {
+        this(filepath, charset, false);
+    }
+
+    /**
+     * Creates a new output writer
+     *
+     * @param String filepath output file
+     * @param String charset
+     * @param Boolean inMemory keep output in memory instead of writing output file
+     * @throws IOException
+     */
+    ExtOutputWriter(String filepath, String charset, Boolean inMemory) throws IOException {
+        this(filepath, charset, inMemory, false);
+    }
+
+    /**
+     * Creates a new output writer
+     *
+     * @param String filepath output file (name before content hash)
+     * @param String charset
+     * @param Boolean inMemory keep output in memory instead of writing output file
+     * @param Boolean hashed name output file by content hash, see getHashedFilepath
+     * @throws IOException
+     */
+    ExtOutputWriter(String filepath, String charset, Boolean inMemory, Boolean hashed) throws IOException {
+        this(filepath, charset, inMemory, hashed, null);
+    }
+
+    /**
+     * Creates a new output writer
+     *
+     * @param String filepath output file (name before content hash)
+     * @param String charset
+     * @param Boolean inMemory keep output in memory instead of writing output file
+     * @param Boolean hashed name output file by content hash, see getHashedFilepath
+     * @param ForkJoinPool gzipPool compress gzipped output file in this pool, or null
+     * @throws IOException
+     */
+    ExtOutputWriter(String filepath, String charset, Boolean inMemory, Boolean hashed, ForkJoinPool gzipPool) 
+            throws IOException {
+        this.file = new File(filepath).getAbsoluteFile();
+        OutputStream out;
+
+        if (inMemory) {
+            this.memory = new ByteArrayOutputStream(BUFFER_SIZE);
+            out = memory;
+        } else {
+            this.tmpFile = File.createTempFile(file.getName() + ".", ".tmp", file.getParentFile());
+            this.stream = new FileOutputStream(tmpFile);
+            this.channel = stream.getChannel();
+            out = stream;
+        }
+
+        if (gzipPool != null) {
+            if (inMemory) {
+                this.gzMemory = new ByteArrayOutputStream(BUFFER_SIZE);
+                this.gzStream = new ExtGzipOutputStream(gzMemory, gzipPool);
+            } else {
+                this.gzTmpFile = File.createTempFile(file.getName() + ".gz.", ".tmp", file.getParentFile());
+                this.gzStream = new ExtGzipOutputStream(new BufferedOutputStream(new FileOutputStream(gzTmpFile), 
+                        BUFFER_SIZE), gzipPool);
+            }
+            out = new TeeOutputStream(out, gzStream);
+        }
+
+        if (hashed) {
+            try {
+                this.digestStream = new DigestOutputStream(out, MessageDigest.getInstance("MD5"));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+            this.hashed = true;
+            this.skipUnchanged = true;
+            out = digestStream;
+        }
+
+        this.copyStream = out != stream ? out : null;
+        this.writer = inMemory ? new OutputStreamWriter(out, charset)
+                : new OutputStreamWriter(new BufferedOutputStream(out, BUFFER_SIZE), charset);
+    }
+
+    /**
+     * Get hashed file path
+     *
+     *   content hash is inserted before file extension : 'app-output.js' : 'app-output.3fa9c1d2.js'
+     *
+     * @param String filepath
+     * @param String hash hex
+     * @return String
+     */
+    public static String getHashedFilepath(String filepath, String hash) {
+        int nameStart = filepath.lastIndexOf('/') + 1;
+        int extStart = filepath.lastIndexOf('.');
+        String prefix = hash.substring(0, HASH_LENGTH);
+
+        if (extStart <= nameStart) {
+            return filepath + "." + prefix;
+        }
+        return filepath.substring(0, extStart) + "." + prefix + filepath.substring(extStart);
+    }
+
+    /**
+     * Get content hash of output written so far
+     *
+     * @return String MD5 hex
+     * @throws IOException
+     */
+    public String getContentHash() throws IOException {
+        writer.flush();
+        try {
+            MessageDigest digest = (MessageDigest) digestStream.getMessageDigest().clone();
+            return String.format("%032x", new BigInteger(1, digest.digest()));
+        } catch (CloneNotSupportedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Name output file by content hash of output written so far
+     *
+     *   output written afterwards (like source map url) is not part of the hash
+     *
+     * @return File hashed output file
+     * @throws IOException
+     */
+    public File hashFile() throws IOException {
+        if (hashed) {
+            file = new File(file.getParentFile(), getHashedFilepath(file.getName(), getContentHash()));
+            hashed = false;
+        }
+        return file;
+    }
+
+    /**
+     * Set output file
+     *
+     * @param File file
+     */
+    public void setFile(File file) {
+        this.file = file.getAbsoluteFile();
+    }
+
+    public void setSkipUnchanged(Boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /**
+     * Is output file unchanged
+     *
+     * @return Boolean true if committed output was equal to existing file (file was not replaced)
+     */
+    public Boolean isSkipped() {
+        return skipped;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get output kept in memory
+     *
+     * @return byte[] or null if output is written to file
+     */
+    public byte[] getBytes() {
+        return memory != null ? memory.toByteArray() : null;
+    }
+
+    /**
+     * Get gzipped output kept in memory
+     *
+     * @return byte[] or null if output is not gzipped or written to file
+     */
+    public byte[] getGzipBytes() {
+        return gzMemory != null ? gzMemory.toByteArray() : null;
+    }
+
+    /**
+     * Get gzipped output file
+     *
+     * @return File or null if output is not gzipped
+     */
+    public File getGzipFile() {
+        return gzStream != null ? new File(file.getPath() + ".gz") : null;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void write(String str) throws IOException {
+        writer.write(str);
+
+        int lineEnd = str.lastIndexOf('\n');
+        if (lineEnd == -1) {
+            column += str.length();
+        } else {
+            for (int i = 0; i <= lineEnd; i++) {
+                if (str.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            column = str.length() - lineEnd - 1;
+        }
+    }
+
+    /**
+     * Write source file contents
+     *
+     *   raw file bytes are transferred without decoding when contents are not transformed
+     *
+     * @param ExtSourceFile sourceFile
+     * @throws IOException
+     */
+    public void write(ExtSourceFile sourceFile) throws IOException {
+        if (sourceFile.isRawContents()) {
+            transfer(sourceFile.getFile());
+        } else {
+            write(sourceFile.getContents());
+        }
+    }
+
+    /**
+     * Transfer file bytes to output channel
+     *
+     *   in memory, hashed or gzipped output : bytes are copied through streams
+     *
+     * @param File source
+     * @throws IOException
+     */
+    public void transfer(File source) throws IOException {
+        FileInputStream in = null;
+
+        writer.flush();
+        if (copyStream != null) {
+            Files.copy(source.toPath(), copyStream);
+            return;
+        }
+
+        try {
+            in = new FileInputStream(source);
+            FileChannel inChannel = in.getChannel();
+            long size = inChannel.size();
+            long position = 0;
+
+            while (position < size) {
+                position += inChannel.transferTo(position, size - position, channel);
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Commit output
+     *
+     *   closes temporary file and moves it to output file (atomically when supported)
+     *
+     * @throws IOException
+     */
+    public void commit() throws IOException {
+        hashFile();
+        writer.close(); // closes gzip stream too
+        if (memory != null) {
+            size = memory.size();
+            return;
+        }
+        size = tmpFile.length();
+
+        if (skipUnchanged && file.isFile() && FileUtils.contentEquals(tmpFile, file)) {
+            tmpFile.delete();
+            skipped = true;
+
+            // gzip of same contents is the same
+            if (gzTmpFile != null && getGzipFile().isFile()) {
+                gzTmpFile.delete();
+                return;
+            }
+        } else {
+            move(tmpFile, file);
+        }
+
+        if (gzTmpFile != null) {
+            move(gzTmpFile, getGzipFile());
+        }
+    }
+
+    /**
+     * Move temporary file to output file (atomically when supported)
+     *
+     * @param File source
+     * @param File target
+     * @throws IOException
+     */
+    static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (AccessDeniedException e) {
+            // read-only output file (restored from artifact cache) can not be replaced on Windows
+            if (!target.isFile() || target.canWrite() || !target.setWritable(true)) {
+                throw e;
+            }
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Abort output
+     *
+     *   output file stays untouched
+     */
+    public void abort() {
+        IOUtils.closeQuietly(writer);
+        IOUtils.closeQuietly(stream);
+        IOUtils.closeQuietly(gzStream);
+        if (tmpFile != null) {
+            tmpFile.delete();
+        }
+        if (gzTmpFile != null) {
+            gzTmpFile.delete();
+        }
+    }
+}
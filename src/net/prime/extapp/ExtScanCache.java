@@ -0,0 +1,65 @@
+package net.prime.extapp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared scan cache
+ *
+ *   in-memory scan results of source files shared by apps built in one run
+ *   entries are keyed by absolute file path and scanner dependency types,
+ *   so apps with different configs re-use scans of the same files (like ExtJS sources)
+ *
+ */
+public class ExtScanCache {
+
+    private Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    static class Entry {
+        long size;
+        long lastModified;
+        byte[] hash;
+        Boolean carriageReturns;
+        List<List<String>> found;
+    }
+
+    private String getKey(ExtDependencyScanner scanner, ExtSourceFile sourceFile) {
+        return scanner.getKey() + "|" + sourceFile.getFilePath();
+    }
+
+    /**
+     * Get scan result of another app
+     *
+     * @param ExtDependencyScanner scanner
+     * @param ExtSourceFile sourceFile
+     * @return List<List<String>> ext classes by dependency type index (shared, read only) or null if not scanned
+     */
+    public List<List<String>> get(ExtDependencyScanner scanner, ExtSourceFile sourceFile) {
+        Entry entry = entries.get(getKey(scanner, sourceFile));
+
+        if (entry != null && entry.size == sourceFile.getSize() && entry.lastModified == sourceFile.getLastModified()) {
+            sourceFile.setHash(entry.hash);
+            sourceFile.setCarriageReturns(entry.carriageReturns);
+            return entry.found;
+        }
+        return null;
+    }
+
+    /**
+     * Put scan result of source file
+     *
+     * @param ExtDependencyScanner scanner
+     * @param ExtSourceFile sourceFile scanned source file
+     * @param List<List<String>> found ext classes by dependency type index
+     */
+    public void put(ExtDependencyScanner scanner, ExtSourceFile sourceFile, List<List<String>> found) {
+        Entry entry = new Entry();
+        entry.found = found;
+        entry.size = sourceFile.getSize();
+        entry.lastModified = sourceFile.getLastModified();
+        entry.hash = sourceFile.getHash();
+        entry.carriageReturns = sourceFile.hasCarriageReturns();
+        entries.put(getKey(scanner, sourceFile), entry);
+    }
+}
@@ -1,51 +1,135 @@
 package net.prime.extapp;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
 import org.apache.commons.io.IOUtils;
 import net.prime.extapp.ExtappMain;
 
 public class ExtSourceFile {
 
+    private static final int MAP_THRESHOLD = 1 << 20; // larger files are memory-mapped
+
+    // read buffer of each loader thread, reused for all files read on the thread
+    private static final ThreadLocal<ByteBuffer> readBuffer = new ThreadLocal<ByteBuffer>();
+
     private String extClass = null;
     private File file = null;
     private String webPath = null;
     private String contents = null;
+    private long size = 0;
+    private long lastModified = 0;
+    private byte[] hash = null;
+    private Boolean carriageReturns = null;
+    private Boolean contentsChanged = false;
+
+    private List<String> depExtClasses = null;
+    private int duplicateDependencies = 0;
+    private List<String> references = null; // aliases and class names resolved by alias index
 
-    private Integer rank = 0;
-    private Boolean enabled = true; // safe rank
+    private int id = -1; // node id in dependency graph
+    private int rank = 0;
     private Boolean isFile = true;
     
     /**
      * Creates a new SourceFile based on a file
      * 
+     *   contents are read on first use
+     * 
      * @param String fullPath
      * @param String webPath
      * @param String charset
      */
     ExtSourceFile(String extClass, String fullpath, String webPath){
-        File file;
-        FileInputStream stream;
-        String contents;
-
         this.extClass = extClass;
         this.webPath = webPath;
+        this.file = new File(fullpath);
+        this.isFile = this.file.isFile();
+
+        if (this.isFile) {
+            this.size = this.file.length();
+            this.lastModified = this.file.lastModified();
+        }
+    }
+
+    /**
+     * Read file bytes, content hash and line breaks kind
+     * 
+     *   small files are read into the reusable buffer of current thread,
+     *   large files are memory-mapped
+     * 
+     * @return ByteBuffer file bytes (valid until next read on current thread) or null if not found
+     * @throws IllegalStateException if file can not be read (build fails, long-running processes keep running)
+     */
+    private ByteBuffer readBytes() {
+        FileInputStream stream = null;
 
         try {
-            file = new File(fullpath);
-            stream = new FileInputStream(file);
-            contents = IOUtils.toString(stream, ExtappMain.charset).replaceAll("\r\n", "\n");
+            stream = new FileInputStream(this.file);
+            FileChannel channel = stream.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File is too large : " + channel.size() + " bytes");
+            }
+            int size = (int) channel.size();
+            ByteBuffer bytes;
 
-            this.file = file;
-            this.contents = contents;
+            if (size > MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = readBuffer.get();
+                if (bytes == null || bytes.capacity() < size) {
+                    bytes = ByteBuffer.allocate(Math.max(size, 1 << 16));
+                    readBuffer.set(bytes);
+                }
+                bytes.clear();
+                bytes.limit(size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    // read fully
+                }
+                bytes.flip();
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(bytes.duplicate());
+            this.hash = digest.digest();
+
+            this.carriageReturns = false;
+            for (int i = bytes.position(); i < bytes.limit(); i++) {
+                if (bytes.get(i) == '\r') {
+                    this.carriageReturns = true;
+                    break;
+                }
+            }
+            return bytes;
 
         } catch (FileNotFoundException e) {
             // e.printStackTrace();
             this.isFile = false;
-        } catch (Exception e) { 
-            System.err.println(e.getMessage());
-            System.exit(1);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Can not read file : " + this.webPath + " (" + e.getMessage() + ")", e);
+        } finally {
+            IOUtils.closeQuietly(stream);
         }
+        return null;
+    }
+
+    /**
+     * Decode file bytes with normalized line breaks
+     * 
+     * @param ByteBuffer bytes
+     * @return String
+     */
+    private String decode(ByteBuffer bytes) {
+        String code = bytes.hasArray()
+                ? new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), Charset.forName(ExtappMain.charset))
+                : Charset.forName(ExtappMain.charset).decode(bytes.duplicate()).toString();
 
+        return this.carriageReturns ? code.replace("\r\n", "\n") : code;
     }
 
     public String getExtClass() {
@@ -70,28 +154,197 @@ public class ExtSourceFile {
     }
     
 
+    /**
+     * Get contents of the source file
+     * 
+     *   decoded from file on each call (not kept in memory) unless contents were set
+     * 
+     * @return String or null if file was not found
+     */
     public String getContents() {
-        return contents;
+        if (this.contents != null || !this.isFile) {
+            return this.contents;
+        }
+        ByteBuffer bytes = readBytes();
+        return bytes != null ? decode(bytes) : null;
+    }
+
+    /**
+     * Get code of the source file for scanning
+     * 
+     *   ASCII compatible charset : view of file bytes without decoding, 
+     *   non-ASCII chars are seen as identifier chars and line breaks are not normalized
+     *   (valid until next read on current thread)
+     * 
+     * @return CharSequence or null if file was not found
+     */
+    public CharSequence getCode() {
+        if (this.contents != null || !this.isFile || !isAsciiCompatible()) {
+            return getContents();
+        }
+        ByteBuffer bytes = readBytes();
+        return bytes != null ? new ByteSequence(bytes, skipByteOrderMark(bytes)) : null;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
     }
 
     /**
-     * Get compressed code of the source file
+     * Get MD5 hash of the file bytes
      * 
+     * @return byte[]
      */
-    public String getFilteredContents() {
-        String fcode = this.contents;
+    public byte[] getHash() {
+        if (this.hash == null && this.isFile) {
+            readBytes();
+        }
+        return hash;
+    }
 
-        fcode = fcode.replaceAll( "//.*|(\"(?:\\\\[^\"]|\\\\\"|.)*?\")|(?s)/\\*.*?\\*/", "$1 " ); // comments
-        fcode = fcode.replaceAll("\\n", ""); // line breaks
-        fcode = fcode.replaceAll("\\s", ""); // white spaces
+    public void setHash(byte[] hash) {
+        this.hash = hash;
+    }
 
-        return fcode;
+    /**
+     * Check for carriage returns in the file bytes
+     * 
+     * @return Boolean or null if file was not read yet
+     */
+    public Boolean hasCarriageReturns() {
+        return carriageReturns;
     }
-    
+
+    public void setCarriageReturns(Boolean carriageReturns) {
+        this.carriageReturns = carriageReturns;
+    }
+
+    /**
+     * Check if file bytes can be written as contents
+     * 
+     *   no line breaks to normalize and contents were not set
+     * 
+     * @return Boolean
+     */
+    public Boolean isRawContents() {
+        return this.isFile && !this.contentsChanged && Boolean.FALSE.equals(this.carriageReturns);
+    }
+
+    private static boolean isAsciiCompatible() {
+        String charset = Charset.forName(ExtappMain.charset).name();
+        return charset.equals("UTF-8") || charset.equals("US-ASCII") || charset.equals("ISO-8859-1");
+    }
+
+    private static int skipByteOrderMark(ByteBuffer bytes) {
+        int pos = bytes.position();
+        if (bytes.remaining() >= 3 && bytes.get(pos) == (byte) 0xEF && bytes.get(pos + 1) == (byte) 0xBB 
+                && bytes.get(pos + 2) == (byte) 0xBF) {
+            return pos + 3;
+        }
+        return pos;
+    }
+
+    /**
+     * Char sequence view of ASCII compatible bytes
+     * 
+     *   non-ASCII bytes are seen as an identifier char, 
+     *   string of sub-sequence is decoded with charset
+     * 
+     */
+    private static class ByteSequence implements CharSequence {
+        private static final char NON_ASCII = '\u00AA';
+
+        private ByteBuffer bytes;
+        private int start;
+        private int end;
+
+        ByteSequence(ByteBuffer bytes, int start) {
+            this(bytes, start, bytes.limit());
+        }
+
+        ByteSequence(ByteBuffer bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(int index) {
+            byte b = bytes.get(start + index);
+            return b >= 0 ? (char) b : NON_ASCII;
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            return new ByteSequence(bytes, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            ByteBuffer range = bytes.duplicate();
+            range.limit(end);
+            range.position(start);
+            return Charset.forName(ExtappMain.charset).decode(range).toString();
+        }
+    }
+
+    public Boolean isContentsChanged() {
+        return contentsChanged;
+    }
+
     public void setContents(String contents) {
         this.contents = contents;
+        this.contentsChanged = true;
     }
     
+    public List<String> getDependentExtClasses() {
+        return depExtClasses;
+    }
+
+    /**
+     * Set dependent ext classes found in the source file
+     * 
+     * @param List<String> depExtClasses deduplicated ext classes
+     * @param int duplicateDependencies number of removed duplicates
+     */
+    public void setDependentExtClasses(List<String> depExtClasses, int duplicateDependencies) {
+        this.depExtClasses = depExtClasses;
+        this.duplicateDependencies = duplicateDependencies;
+    }
+
+    public List<String> getReferences() {
+        return references;
+    }
+
+    /**
+     * Set references found in the source file
+     * 
+     *   dependent ext classes which are resolved by alias index : 'widget.boxselect', 'Demo.store.Main'
+     * 
+     * @param List<String> references
+     */
+    public void setReferences(List<String> references) {
+        this.references = references;
+    }
+
+    public int getDuplicateDependencies() {
+        return duplicateDependencies;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public int getRank() {
         return rank;
     }
@@ -100,18 +353,6 @@ public class ExtSourceFile {
         this.rank = rank; 
     }
 
-    public Boolean isEnabled() {
-        return enabled;
-    }
-    
-    public void enable() {
-        this.enabled = true;
-    }
-    
-    public void disable() {
-        this.enabled = false;
-    }
-    
     /**
      * Check if file was found and read
      * 
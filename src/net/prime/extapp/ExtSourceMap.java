@@ -0,0 +1,223 @@
+package net.prime.extapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Source map (v3) of output file
+ *
+ * - mappings are streamed to the map file while the output is written
+ * - sources are web paths of source files
+ * - lines are separated by '\n', columns are counted in chars
+ *
+ */
+public class ExtSourceMap {
+
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    private static Gson gs = new GsonBuilder().disableHtmlEscaping().create();
+
+    private ExtOutputWriter writer = null;
+    private List<String> sources = new ArrayList<String>();
+    private StringBuilder segment = new StringBuilder();
+
+    // last segment, fields are encoded relative to it
+    private int line = 0;
+    private int column = 0;
+    private int source = 0;
+    private int sourceLine = 0;
+    private int sourceColumn = 0;
+    private Boolean lineStart = true;
+
+    /**
+     * Mappings of one source file
+     *
+     *   generated line and column (relative to start of file code), source line and column
+     *
+     */
+    static class Mappings {
+        private int[] data = new int[256];
+        private int size = 0;
+
+        public void add(int line, int column, int sourceLine, int sourceColumn) {
+            if (size + 4 > data.length) {
+                int[] newData = new int[data.length * 2];
+                System.arraycopy(data, 0, newData, 0, size);
+                data = newData;
+            }
+            data[size++] = line;
+            data[size++] = column;
+            data[size++] = sourceLine;
+            data[size++] = sourceColumn;
+        }
+
+        public void addAll(int[] values) {
+            if (size + values.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + values.length));
+            }
+            System.arraycopy(values, 0, data, size, values.length);
+            size += values.length;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * Creates a new source map
+     *
+     * @param String filepath map file
+     * @param String file output file name
+     * @throws IOException
+     */
+    ExtSourceMap(String filepath, String file) throws IOException {
+        this(new ExtOutputWriter(filepath, "UTF-8"), file);
+    }
+
+    /**
+     * Creates a new source map
+     *
+     * @param ExtOutputWriter writer map file writer (UTF-8)
+     * @param String file output file name
+     * @throws IOException
+     */
+    ExtSourceMap(ExtOutputWriter writer, String file) throws IOException {
+        this.writer = writer;
+        this.writer.write("{\"version\":3,\"file\":" + gs.toJson(file) + ",\"mappings\":\"");
+    }
+
+    /**
+     * Add source file
+     *
+     * @param String webPath
+     * @return int source index
+     */
+    public int addSource(String webPath) {
+        sources.add(webPath);
+        return sources.size() - 1;
+    }
+
+    /**
+     * Add mapping
+     *
+     *   mappings are added in order of generated positions
+     *
+     * @param int genLine output line
+     * @param int genColumn output column
+     * @param int source source index
+     * @param int srcLine source line
+     * @param int srcColumn source column
+     * @throws IOException
+     */
+    public void addMapping(int genLine, int genColumn, int source, int srcLine, int srcColumn) throws IOException {
+        segment.setLength(0);
+
+        while (line < genLine) {
+            segment.append(';');
+            line++;
+            column = 0;
+            lineStart = true;
+        }
+        if (!lineStart) {
+            segment.append(',');
+        }
+
+        encode(genColumn - column);
+        encode(source - this.source);
+        encode(srcLine - sourceLine);
+        encode(srcColumn - sourceColumn);
+
+        column = genColumn;
+        this.source = source;
+        sourceLine = srcLine;
+        sourceColumn = srcColumn;
+        lineStart = false;
+
+        writer.write(segment.toString());
+    }
+
+    /**
+     * Map each line of code written as is
+     *
+     * @param int genLine output line of code start
+     * @param int genColumn output column of code start
+     * @param int source source index
+     * @param CharSequence code
+     * @throws IOException
+     */
+    public void addLineMappings(int genLine, int genColumn, int source, CharSequence code) throws IOException {
+        addMapping(genLine, genColumn, source, 0, 0);
+
+        int srcLine = 0;
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                srcLine++;
+                addMapping(genLine + srcLine, 0, source, srcLine, 0);
+            }
+        }
+    }
+
+    /**
+     * Add mappings of code written at output position
+     *
+     * @param int genLine output line of code start
+     * @param int genColumn output column of code start
+     * @param int source source index
+     * @param Mappings mappings
+     * @throws IOException
+     */
+    public void addMappings(int genLine, int genColumn, int source, Mappings mappings) throws IOException {
+        for (int i = 0; i < mappings.size; i += 4) {
+            int line = mappings.data[i];
+            int column = mappings.data[i + 1];
+            addMapping(genLine + line, line == 0 ? genColumn + column : column, source,
+                    mappings.data[i + 2], mappings.data[i + 3]);
+        }
+    }
+
+    /**
+     * Encode base64 VLQ value
+     *
+     * @param int value
+     */
+    private void encode(int value) {
+        int vlq = value < 0 ? ((-value) << 1) | 1 : value << 1;
+
+        do {
+            int digit = vlq & 31;
+            vlq >>>= 5;
+            if (vlq > 0) {
+                digit |= 32;
+            }
+            segment.append(BASE64.charAt(digit));
+        } while (vlq > 0);
+    }
+
+    /**
+     * Write sources and replace map file
+     *
+     * @throws IOException
+     */
+    public void commit() throws IOException {
+        writer.write("\",\"sources\":" + gs.toJson(sources) + ",\"names\":[]}");
+        writer.commit();
+    }
+
+    public long getSize() {
+        return writer.getSize();
+    }
+
+    public ExtOutputWriter getWriter() {
+        return writer;
+    }
+
+    public void abort() {
+        writer.abort();
+    }
+}
@@ -0,0 +1,148 @@
+package net.prime.extapp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Persistent transform cache
+ *
+ *   binary file with transformed (minified) code of each source file
+ *   and its source map mappings (varint encoded)
+ *   entries are valid while content hash of source file is the same
+ *   whole cache is dropped when transform settings differ (minifier version, charset)
+ *
+ */
+public class ExtTransformCache extends ExtCacheFile<ExtTransformCache.Entry> {
+
+    private static final int MAGIC = 0x4558544D; // EXTM
+    private static final int VERSION = 1;
+
+    static class Entry {
+        byte[] hash;
+        String code;
+        int[] mappings; // null if transformed without source map
+    }
+
+    /**
+     * Creates a new cache
+     *
+     * @param String filepath cache file
+     * @param String fingerprint transform settings
+     */
+    ExtTransformCache(String filepath, String fingerprint) {
+        super(MAGIC, VERSION, filepath, fingerprint);
+    }
+
+    @Override
+    protected Entry readEntry(DataInputStream in) throws IOException {
+        Entry entry = new Entry();
+
+        entry.hash = new byte[in.readUnsignedByte()];
+        in.readFully(entry.hash);
+
+        byte[] code = new byte[in.readInt()];
+        in.readFully(code);
+        entry.code = new String(code, "UTF-8");
+
+        int length = in.readInt();
+        if (length >= 0) {
+            entry.mappings = new int[length];
+            for (int i = 0; i < length; i++) {
+                entry.mappings[i] = readVarint(in);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    protected void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        byte[] code = entry.code.getBytes("UTF-8");
+
+        out.writeByte(entry.hash.length);
+        out.write(entry.hash);
+        out.writeInt(code.length);
+        out.write(code);
+
+        out.writeInt(entry.mappings != null ? entry.mappings.length : -1);
+        if (entry.mappings != null) {
+            for (int value : entry.mappings) {
+                writeVarint(out, value);
+            }
+        }
+    }
+
+    /**
+     * Read unsigned varint (7 bits per byte, low bits first)
+     *
+     */
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Get cached transformed code of source file
+     *
+     *   mappings of cached code are added to given mappings
+     *
+     * @param ExtSourceFile sourceFile
+     * @param ExtSourceMap.Mappings mappings or null
+     * @return String or null on cache miss (also if mappings are required but not cached)
+     */
+    public String get(ExtSourceFile sourceFile, ExtSourceMap.Mappings mappings) {
+        Entry entry = getEntry(sourceFile.getWebPath());
+
+        if (entry != null && !sourceFile.isContentsChanged() && (mappings == null || entry.mappings != null)
+                && Arrays.equals(entry.hash, sourceFile.getHash())) {
+            if (mappings != null) {
+                mappings.addAll(entry.mappings);
+            }
+            hit(sourceFile.getWebPath(), entry);
+            return entry.code;
+        }
+
+        miss();
+        return null;
+    }
+
+    /**
+     * Put transformed code of source file
+     *
+     *   source files with changed contents are not cached
+     *
+     * @param ExtSourceFile sourceFile
+     * @param String code
+     * @param ExtSourceMap.Mappings mappings or null
+     */
+    public void put(ExtSourceFile sourceFile, String code, ExtSourceMap.Mappings mappings) {
+        if (sourceFile.isContentsChanged() || sourceFile.getHash() == null) {
+            return;
+        }
+
+        Entry entry = new Entry();
+        entry.hash = sourceFile.getHash();
+        entry.code = code;
+        entry.mappings = mappings != null ? mappings.toArray() : null;
+
+        putEntry(sourceFile.getWebPath(), entry);
+    }
+}
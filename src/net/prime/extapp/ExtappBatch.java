@@ -0,0 +1,206 @@
+package net.prime.extapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Batch of app builds in one run
+ *
+ * - source files are loaded on one shared pool
+ * - scan results, dependency caches and resolved paths (same paths config) are shared
+ * - independent apps are built in parallel, messages of each app are printed when it is built (or failed)
+ * - a failing app does not stop other builds : failures are reported and the run exits with status 1
+ *   after all builds are finished
+ *
+ */
+public class ExtappBatch {
+
+    private static Gson gs = new GsonBuilder().create();
+
+    private List<ExtappMain> apps = null;
+    private Integer threads = 1;
+
+    private Map<ExtappMain, ByteArrayOutputStream> logs = new HashMap<ExtappMain, ByteArrayOutputStream>();
+
+    /**
+     * Apps manifest
+     *
+     *   example: { apps : [ { config : '/portal/extapp-config.js', source : '/portal/app.js', output : '/portal/app-output.js' } ] }
+     *
+     */
+    static class Manifest {
+        List<ManifestApp> apps = new ArrayList<ManifestApp>();
+    }
+
+    static class ManifestApp {
+        String config;
+        String source;
+        String output;
+    }
+
+    /**
+     * Creates a new batch
+     *
+     * @param List<ExtappMain> apps
+     * @param Integer threads size of shared pool
+     */
+    ExtappBatch(List<ExtappMain> apps, Integer threads) {
+        this.apps = apps;
+        this.threads = threads;
+    }
+
+    /**
+     * Load apps manifest
+     *
+     * @param String filepath
+     * @return List<String[]> config, source and output filenames of each app
+     * @throws IOException
+     */
+    public static List<String[]> loadManifest(String filepath) throws IOException {
+        FileInputStream stream = null;
+        List<String[]> apps = new ArrayList<String[]>();
+
+        try {
+            stream = new FileInputStream(new File(filepath));
+            Manifest manifest = gs.fromJson(IOUtils.toString(stream, ExtappMain.charset), Manifest.class);
+
+            if (manifest != null && manifest.apps != null) {
+                for (ManifestApp app : manifest.apps) {
+                    apps.add(new String[] { app.config, app.source, app.output });
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+        return apps;
+    }
+
+    /**
+     * Print buffered messages of app
+     *
+     * @param ExtappMain app
+     */
+    private void printLog(ExtappMain app) {
+        ByteArrayOutputStream log = logs.get(app);
+        if (log != null) {
+            synchronized (System.err) {
+                System.err.print(log.toString());
+                System.err.flush();
+            }
+        }
+    }
+
+    /**
+     * Share resolved paths of apps with the same paths config
+     *
+     */
+    private void sharePaths() {
+        Map<String, ExtappConfig> configs = new HashMap<String, ExtappConfig>();
+
+        for (ExtappMain app : apps) {
+            String fingerprint = app.getConfig().getPathsFingerprint();
+            ExtappConfig config = configs.get(fingerprint);
+
+            if (config == null) {
+                configs.put(fingerprint, app.getConfig());
+            } else {
+                app.getConfig().sharePaths(config);
+            }
+        }
+    }
+
+    public void init() {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ExtScanCache scanCache = new ExtScanCache();
+        Map<String, ExtDependencyCache> dependencyCaches = new HashMap<String, ExtDependencyCache>();
+        Map<String, ExtTransformCache> transformCaches = new HashMap<String, ExtTransformCache>();
+        ExecutorService executor = null;
+        Boolean watch = false;
+        String reportFilename = apps.get(0).getReportFilename();
+        List<String> failures = new ArrayList<String>();
+
+        try {
+            for (ExtappMain app : apps) {
+                // watching apps never finish : messages are not buffered
+                if (!app.isWatch()) {
+                    ByteArrayOutputStream log = new ByteArrayOutputStream();
+                    logs.put(app, log);
+                    app.setLog(new PrintStream(log, true, ExtappMain.charset));
+                }
+                app.setExitOnError(false); // errors fail the build of app, not the run
+                app.setPool(pool);
+                app.setScanCache(scanCache);
+                app.setDependencyCaches(dependencyCaches);
+                app.setTransformCaches(transformCaches);
+                app.setReportFilename(null); // one report of all apps
+                app.prepare();
+                watch = watch || app.isWatch();
+            }
+            sharePaths();
+
+            executor = Executors.newFixedThreadPool(watch ? apps.size() : Math.min(apps.size(), threads));
+            List<Future<Void>> builds = new ArrayList<Future<Void>>();
+
+            for (final ExtappMain app : apps) {
+                builds.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        try {
+                            app.build();
+                        } finally {
+                            printLog(app);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (int i = 0; i < builds.size(); i++) {
+                try {
+                    builds.get(i).get();
+                } catch (ExecutionException e) {
+                    failures.add(apps.get(i).getConfigFilename());
+                    System.err.println("\n[ERROR] " + apps.get(i).getConfigFilename() + " : " + e.getCause().getMessage());
+                }
+            }
+
+            if (reportFilename != null && failures.isEmpty()) {
+                List<ExtBuildReport> reports = new ArrayList<ExtBuildReport>();
+                for (ExtappMain app : apps) {
+                    reports.add(app.getReport());
+                }
+                ExtBuildReport.write(reportFilename, reports);
+            }
+
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            pool.shutdown();
+        }
+
+        if (!failures.isEmpty()) {
+            System.err.println("\n[ERROR] " + failures.size() + " of " + apps.size() + " apps failed : " + failures);
+            System.exit(1);
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package net.prime.extapp;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExtappConfig {
 
     private String name = "Demo"; // app name
     private String appFolder = "/portal";
 
-    private Map<String, String> paths = new HashMap<String, String>();
+    // concurrent maps : resolved paths and ext classes are collected by loader threads
+    private ConcurrentHashMap<String, String> paths = new ConcurrentHashMap<String, String>();
 
     private Map<String, Boolean> dependTypes = new HashMap<String, Boolean>(){
         private static final long serialVersionUID = 1L;
@@ -29,32 +35,79 @@ public class ExtappConfig {
             put("extend", true);
             put("model", true);
             put("store", true);
+
+            // references by alias or class name (resolved by alias index)
+            put("xtype", false);
+            put("Ext.create", false);
+            put("Ext.widget", false);
+            put("Ext.require", false);
         }
     };
 
-    private Map<String, Boolean> extClasses = new HashMap<String, Boolean>(){
+    private ConcurrentHashMap<String, Boolean> extClasses = new ConcurrentHashMap<String, Boolean>(){
         private static final long serialVersionUID = 1L;
         {
             put("Ext", false);
         }
     };
     
-    private Boolean safeRank = true; // prevent dependencies infinite loop
-    private Integer safeRankLimit = 50; // maximum rank limit to stop infinite loop
+    private Boolean safeRank = true; // report dependency loops
+
+    // bundle name : entry ext classes (output is split into common and entry bundles)
+    private Map<String, List<String>> bundles = new LinkedHashMap<String, List<String>>();
+
+    // compiled from configured paths and ext classes, not read from config file
+    private transient ExtNamespaceTrie<String> pathsTrie = null;
+    private transient ExtNamespaceTrie<Boolean> extClassesTrie = null;
+    private transient Map<String, String> configuredPaths = null;
 
     class DependTypeEnum {
         public Boolean folder;
         public DependType dependType;
+        public Boolean call = false;
+        public String aliasPrefix = null;
 
         DependTypeEnum(Boolean folder,  DependType dependType) {
             this.folder = folder;
             this.dependType = dependType;
         }
+
+        /**
+         * Reference type
+         * 
+         * @param DependType dependType
+         * @param Boolean call first call argument instead of property value
+         * @param String aliasPrefix prefix of value to alias (like 'widget.'), or null
+         */
+        DependTypeEnum(DependType dependType, Boolean call, String aliasPrefix) {
+            this(false, dependType);
+            this.call = call;
+            this.aliasPrefix = aliasPrefix;
+        }
         
         public Boolean isFolder(){
             return folder;
         }
 
+        public Boolean isCall() {
+            return call;
+        }
+
+        public String getAliasPrefix() {
+            return aliasPrefix;
+        }
+
+        /**
+         * Check for reference type
+         * 
+         *   values are aliases, alternate class names or class names resolved by alias index
+         * 
+         * @return Boolean
+         */
+        public Boolean isReference() {
+            return call || aliasPrefix != null;
+        }
+
         public Boolean isArrayProperty() {
             return dependType.getValue().equals("Array") ? true : false;
         }
@@ -94,6 +147,11 @@ public class ExtappConfig {
             put("extend", new DependTypeEnum(false, DependType.STRING));
             put("model", new DependTypeEnum(false, DependType.STRING));
             put("store", new DependTypeEnum(false, DependType.STRING));
+
+            put("xtype", new DependTypeEnum(DependType.STRING, false, "widget."));
+            put("Ext.create", new DependTypeEnum(DependType.STRING, true, null));
+            put("Ext.widget", new DependTypeEnum(DependType.STRING, true, "widget."));
+            put("Ext.require", new DependTypeEnum(DependType.ARRAY, true, null));
         }
     };
 
@@ -108,6 +166,28 @@ public class ExtappConfig {
     public Map<String, String> getPaths() {
         return paths;
     }
+
+    /**
+     * Share resolved paths with another app config
+     *
+     *   both configs must have the same paths fingerprint
+     *
+     * @param ExtappConfig config
+     */
+    public void sharePaths(ExtappConfig config) {
+        this.paths = config.paths;
+    }
+
+    /**
+     * Get fingerprint of settings which affect resolved paths
+     *
+     *   apps with the same fingerprint resolve ext classes to the same paths
+     *
+     * @return String
+     */
+    public String getPathsFingerprint() {
+        return name + ";" + appFolder + ";" + new TreeMap<String, String>(paths);
+    }
     
     public Map<String, Boolean> getDependTypes() {
         return dependTypes;
@@ -116,13 +196,100 @@ public class ExtappConfig {
     public Map<String, Boolean> getExtClasses() {
         return extClasses;
     }
+
+    /**
+     * Compile configured paths and ext classes into namespace tries
+     *
+     *   called once after config is loaded (before paths are resolved)
+     */
+    public void compile() {
+        configuredPaths = new HashMap<String, String>(paths);
+        pathsTrie = ExtNamespaceTrie.compile(paths);
+        extClassesTrie = ExtNamespaceTrie.compile(extClasses);
+    }
+
+    public ExtNamespaceTrie<String> getPathsTrie() {
+        if (pathsTrie == null) {
+            compile();
+        }
+        return pathsTrie;
+    }
+
+    /**
+     * Get paths of config file
+     * 
+     *   without paths resolved by builds
+     * 
+     * @return Map<String, String>
+     */
+    public Map<String, String> getConfiguredPaths() {
+        if (configuredPaths == null) {
+            compile();
+        }
+        return configuredPaths;
+    }
+
+    public ExtNamespaceTrie<Boolean> getExtClassesTrie() {
+        if (extClassesTrie == null) {
+            compile();
+        }
+        return extClassesTrie;
+    }
     
-    public Boolean isSafeRank() {
-        return safeRank;
+    /**
+     * Get path of ext class by the longest configured namespace
+     *
+     * @param String extClass
+     * @return String web path or null if no namespace is configured
+     */
+    public String getPathByTree(String extClass) {
+        ExtNamespaceTrie.Node<String> namespace = getPathsTrie().find(extClass);
+
+        if (namespace == null) {
+            return null;
+        }
+
+        String path = namespace.getValue() + extClass.substring(namespace.getLength()).replace('.', '/');
+        return path.endsWith(".js") ? path : path + ".js";
+    }
+
+    /**
+     * Get path of ext class in app folder
+     *
+     * @param String extClass
+     * @return String web path
+     */
+    public String getPathByAppFolder(String extClass) {
+        String extClassWebPath = extClass.replace('.', '/') + ".js";
+
+        return extClassWebPath.startsWith(name)
+                ? appFolder + extClassWebPath.substring(name.length())
+                : appFolder + "/" + extClassWebPath;
+    }
+
+    /**
+     * Get path of ext class as builds resolve it
+     *
+     *   not collected to resolved paths
+     *
+     * @param String extClass
+     * @return String web path
+     */
+    public String getExtClassPath(String extClass) {
+        String path = getPathByTree(extClass);
+        return path != null ? path : getPathByAppFolder(extClass);
+    }
+
+    public Map<String, List<String>> getBundles() {
+        return bundles != null ? bundles : Collections.<String, List<String>>emptyMap();
+    }
+
+    public Boolean isSplitBundles() {
+        return !getBundles().isEmpty();
     }
     
-    public Integer getSafeRankLimit() {
-        return safeRankLimit;
+    public Boolean isSafeRank() {
+        return safeRank;
     }
     
     public Map<String, DependTypeEnum> getDependTypeEnums() {
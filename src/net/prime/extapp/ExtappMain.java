@@ -2,6 +2,16 @@ package net.prime.extapp;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -20,10 +30,30 @@ public class ExtappMain {
     private String configFilename = null;
     private String sourceFilename = null;
     private String outputFilename = null;
+    private Integer threads = 1;
+    private Boolean cache = true;
+    private Boolean watch = false;
+    private Boolean sourceMap = false;
+    private Boolean contentHash = false; // output file names with content hash
+    private Boolean gzip = false; // gzipped output files next to output files
+    private String reportFilename = null;
+    private String artifactCacheDir = null; // content-addressed cache of output files
+    private Boolean exitOnError = true;
+    private Boolean inMemory = false; // outputs are kept in memory (dev server)
+    private Integer devServerPort = null;
     
     public static String charset = "UTF-8"; 
 
+    private PrintStream log = System.err;
+
+    // shared by apps built in one run
+    private ForkJoinPool pool = null;
+    private ExtScanCache scanCache = null;
+    private Map<String, ExtDependencyCache> dependencyCaches = new HashMap<String, ExtDependencyCache>();
+    private Map<String, ExtTransformCache> transformCaches = new HashMap<String, ExtTransformCache>();
+
     private ExtappConfig config = new ExtappConfig();
+    private ExtBuildReport report = null;
 
     private static Gson gs = new GsonBuilder().create();
     
@@ -32,11 +62,12 @@ public class ExtappMain {
     int errors = 0;
     int warnings = 0;
     
-    ExtappMain(Boolean verbose, Boolean delimiter, Boolean minify, 
+    ExtappMain(Boolean verbose, Boolean delimiter, Boolean minify, Integer threads,
             String basePath, String configFilename, String sourceFilename, String outputFilename) {
         this.verbose = verbose;
         this.delimiter = delimiter;
         this.minify = minify;
+        this.threads = threads;
         this.basePath = basePath;
         this.configFilename = configFilename;
         this.sourceFilename = sourceFilename;
@@ -59,6 +90,274 @@ public class ExtappMain {
         return minify;
     }
     
+    public Integer getThreads() {
+        return threads;
+    }
+    
+    public Boolean isCache() {
+        return cache;
+    }
+    
+    public void setCache(Boolean cache) {
+        this.cache = cache;
+    }
+    
+    public Boolean isWatch() {
+        return watch;
+    }
+    
+    public void setWatch(Boolean watch) {
+        this.watch = watch;
+    }
+    
+    public Boolean isSourceMap() {
+        return sourceMap;
+    }
+    
+    public void setSourceMap(Boolean sourceMap) {
+        this.sourceMap = sourceMap;
+    }
+    
+    public Boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(Boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public Boolean isContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(Boolean contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Get file path of hash manifest
+     *
+     *   maps output file names to content hashed file names : 'out.js' : 'out.3fa9c1d2.js'
+     *
+     * @return String
+     */
+    public String getHashManifestFilepath() {
+        return getOutputFilepath() + ".manifest.json";
+    }
+
+    public String getSourceMapFilepath() {
+        return getOutputFilepath() + ".map";
+    }
+    
+    /**
+     * Get file path of bundle
+     *
+     *   example: 'out.js' > 'out-test.js'
+     *
+     * @param String name bundle name
+     * @return String
+     */
+    public String getBundleFilepath(String name) {
+        String filepath = getOutputFilepath();
+        int i = filepath.lastIndexOf(".");
+
+        return i > filepath.lastIndexOf("/") 
+                ? filepath.substring(0, i) + "-" + name + filepath.substring(i) 
+                : filepath + "-" + name;
+    }
+
+    public String getBundleManifestFilepath() {
+        return getOutputFilepath() + ".bundles.json";
+    }
+
+    public void setDevServerPort(Integer devServerPort) {
+        this.devServerPort = devServerPort;
+    }
+
+    public Boolean isInMemory() {
+        return inMemory;
+    }
+
+    public void setInMemory(Boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    public void setExitOnError(Boolean exitOnError) {
+        this.exitOnError = exitOnError;
+    }
+
+    /**
+     * Stop on fatal build error
+     * 
+     *   exits command line builds, server builds throw to fail the request only
+     * 
+     * @param String msg
+     */
+    public void fail(String msg) {
+        if (!exitOnError) {
+            throw new IllegalStateException(msg);
+        }
+        System.err.println(msg);
+        System.exit(1);
+    }
+
+    public String getReportFilename() {
+        return reportFilename;
+    }
+
+    public void setReportFilename(String reportFilename) {
+        this.reportFilename = reportFilename;
+    }
+
+    public String getArtifactCacheDir() {
+        return artifactCacheDir;
+    }
+
+    public void setArtifactCacheDir(String artifactCacheDir) {
+        this.artifactCacheDir = artifactCacheDir;
+    }
+
+    public ExtBuildReport getReport() {
+        return report;
+    }
+
+    /**
+     * Start report of next build
+     * 
+     *   config is loaded once : config time is kept
+     */
+    public void resetReport() {
+        ExtBuildReport nextReport = new ExtBuildReport(getPath(configFilename));
+        nextReport.addTime("config", report.getTime("config"));
+        report = nextReport;
+    }
+
+    /**
+     * Write build report (if enabled)
+     * 
+     *   report errors do not break the build
+     */
+    public void writeReport() {
+        if (reportFilename != null) {
+            try {
+                ExtBuildReport.write(reportFilename, Collections.singletonList(report));
+            } catch (IOException e) {
+                printMsg("Can not write report file : " + e.getMessage() + "\n", "warning");
+            }
+        }
+    }
+
+    public PrintStream getLog() {
+        return log;
+    }
+    
+    public void setLog(PrintStream log) {
+        this.log = log;
+    }
+    
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+    
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    public ExtScanCache getScanCache() {
+        return scanCache;
+    }
+    
+    public void setScanCache(ExtScanCache scanCache) {
+        this.scanCache = scanCache;
+    }
+    
+    public void setDependencyCaches(Map<String, ExtDependencyCache> dependencyCaches) {
+        this.dependencyCaches = dependencyCaches;
+    }
+    
+    /**
+     * Get dependency cache
+     * 
+     *   builds with the same cache file (same config) share one cache
+     * 
+     * @param String fingerprint dependency settings of config
+     * @return ExtDependencyCache or null if cache is disabled
+     */
+    public ExtDependencyCache getDependencyCache(String fingerprint) {
+        String cacheFilepath = getCacheFilepath();
+        if (cacheFilepath == null) {
+            return null;
+        }
+
+        synchronized (dependencyCaches) {
+            ExtDependencyCache dependencyCache = dependencyCaches.get(cacheFilepath);
+            // config was changed (server) : entries of other settings are dropped
+            if (dependencyCache == null || !dependencyCache.getFingerprint().equals(fingerprint)) {
+                dependencyCache = new ExtDependencyCache(cacheFilepath, fingerprint);
+                dependencyCaches.put(cacheFilepath, dependencyCache);
+            }
+            return dependencyCache;
+        }
+    }
+    
+    public void setTransformCaches(Map<String, ExtTransformCache> transformCaches) {
+        this.transformCaches = transformCaches;
+    }
+    
+    /**
+     * Get transform (minify) cache
+     * 
+     *   builds with the same cache file (same config) share one cache
+     * 
+     * @param String fingerprint transform settings
+     * @return ExtTransformCache or null if cache is disabled
+     */
+    public ExtTransformCache getTransformCache(String fingerprint) {
+        String cacheFilepath = getTransformCacheFilepath();
+        if (cacheFilepath == null) {
+            return null;
+        }
+
+        synchronized (transformCaches) {
+            ExtTransformCache transformCache = transformCaches.get(cacheFilepath);
+            if (transformCache == null || !transformCache.getFingerprint().equals(fingerprint)) {
+                transformCache = new ExtTransformCache(cacheFilepath, fingerprint);
+                transformCaches.put(cacheFilepath, transformCache);
+            }
+            return transformCache;
+        }
+    }
+    
+    public ExtappConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Get dependency cache file path
+     * 
+     *   example: /portal/extapp-config.js > {basePath}/.extapp-cache/portal.extapp-config.js.deps
+     * 
+     * @return String or null if cache is disabled
+     */
+    public String getCacheFilepath() {
+        if (!cache) {
+            return null;
+        }
+        return getPath(".extapp-cache/" + configFilename.replaceAll("^[/\\\\]+", "").replaceAll("[/\\\\:]", ".") + ".deps");
+    }
+    
+    /**
+     * Get transform (minify) cache file path
+     * 
+     *   example: /portal/extapp-config.js > {basePath}/.extapp-cache/portal.extapp-config.js.min
+     * 
+     * @return String or null if cache is disabled
+     */
+    public String getTransformCacheFilepath() {
+        String cacheFilepath = getCacheFilepath();
+        return cacheFilepath != null ? cacheFilepath.replaceAll("\\.deps$", ".min") : null;
+    }
+    
     public String getConfigFilename() {
         return configFilename;
     }
@@ -89,7 +388,7 @@ public class ExtappMain {
     
     public void printMsg(String msg, String type) {
         if (verbose) {
-            System.err.print("\n[" + type.toUpperCase() + "] " + msg);
+            log.print("\n[" + type.toUpperCase() + "] " + msg);
         }
     }
     
@@ -99,13 +398,13 @@ public class ExtappMain {
     
     public void printProgress() {
         if (verbose) {
-            System.err.print(".");
+            log.print(".");
         }
     }
     
     public void printLn() {
         if (verbose) {
-            System.err.print("\n");
+            log.print("\n");
         }        
     }
     
@@ -117,75 +416,165 @@ public class ExtappMain {
     
     public void init() {
         try {
-            // Base path
-            if (basePath == null) {
-                basePath = "";
-            }
-            printMsg("Base path : " + basePath);
-            
-            // Config file
-            if (configFilename != null) {
-                FileInputStream configFileStream = new FileInputStream(new File(getPath(configFilename)));
-                String configStr = IOUtils.toString(configFileStream, charset);            
-
-                if (configStr != null && configStr != "") {
-                    config = gs.fromJson(configStr, ExtappConfig.class);
-                    printMsg("Config file : " + getPath(configFilename));
-                } else {
-                    System.err.println("[ERROR] Config file is non-valid");
-                    usage();
-                    System.exit(1);
-                }                
-            } else {
-                System.err.println("\n[ERROR] No config file specified");
-                usage();
-                System.exit(1);
-            }
+            prepare();
+            build();
 
-            // Source file
-            if (sourceFilename != null) {
-                printMsg("Source file : " + getPath(sourceFilename));
+        } catch (Exception e) {
+            usage();
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } 
+    }
+
+    /**
+     * Prepare build
+     * 
+     * - load config file
+     * - check source and output files
+     * 
+     * @throws IOException
+     */
+    public void prepare() throws IOException {
+        // Base path
+        if (basePath == null) {
+            basePath = "";
+        }
+        printMsg("Base path : " + basePath);
+        
+        // Config file
+        report = new ExtBuildReport(getPath(configFilename));
+        long configStart = System.nanoTime();
+
+        if (configFilename != null) {
+            FileInputStream configFileStream = new FileInputStream(new File(getPath(configFilename)));
+            String configStr = IOUtils.toString(configFileStream, charset);            
+
+            if (configStr != null && configStr != "") {
+                config = gs.fromJson(configStr, ExtappConfig.class);
+                config.compile();
+                report.addTime("config", System.nanoTime() - configStart);
+                printMsg("Config file : " + getPath(configFilename));
             } else {
-                System.err.println("\n[ERROR] No source file specified");
+                System.err.println("[ERROR] Config file is non-valid");
                 usage();
                 System.exit(1);
-            }
+            }                
+        } else {
+            System.err.println("\n[ERROR] No config file specified");
+            usage();
+            System.exit(1);
+        }
 
-            // Output file
-            if (outputFilename != null) {
-                printMsg("Output file : " + getPath(outputFilename));
-            } else {
-                File sourceFile = new File(getPath(sourceFilename));
-                String sourceBackupFilename = getPath(sourceFilename).replace(".js", "") + ".src.js";
-                File sourceBackupFile = new File(sourceBackupFilename);
+        // Source file
+        if (sourceFilename != null) {
+            printMsg("Source file : " + getPath(sourceFilename));
+        } else {
+            System.err.println("\n[ERROR] No source file specified");
+            usage();
+            System.exit(1);
+        }
 
-                FileUtils.copyFile(sourceFile, sourceBackupFile);
-                outputFilename = sourceFilename;
+        // Output file
+        if (outputFilename != null) {
+            printMsg("Output file : " + getPath(outputFilename));
+        } else {
+            File sourceFile = new File(getPath(sourceFilename));
+            String sourceBackupFilename = getPath(sourceFilename).replace(".js", "") + ".src.js";
+            File sourceBackupFile = new File(sourceBackupFilename);
 
-                printMsg("No output file specified. Using source file for output instead.");
-                printMsg("Source backup file : " + sourceBackupFilename);
-                printMsg("Output file : " + getPath(sourceFilename));
-            }
-            
-            // Delimiter
-            if (delimiter) {
-                printMsg("Delimiter is enabled");
-            }
-            
-            // Minify
-            if (minify) {
-                printMsg("Minify is enabled");
-            }
+            FileUtils.copyFile(sourceFile, sourceBackupFile);
+            outputFilename = sourceFilename;
+
+            printMsg("No output file specified. Using source file for output instead.");
+            printMsg("Source backup file : " + sourceBackupFilename);
+            printMsg("Output file : " + getPath(sourceFilename));
+        }
+        
+        // Delimiter
+        if (delimiter) {
+            printMsg("Delimiter is enabled");
+        }
+        
+        // Minify
+        if (minify) {
+            printMsg("Minify is enabled");
+        }
 
-            // Ext file combiner
-            ExtFileCombiner extFileCombiner = new ExtFileCombiner(this, config);
-            extFileCombiner.init();
+        // Source map
+        if (sourceMap) {
+            printMsg("Source map file : " + getSourceMapFilepath());
+        }
 
-        } catch (Exception e) {
+        // Gzip
+        if (gzip) {
+            printMsg("Gzip is enabled");
+        }
+
+        // Content hash
+        if (contentHash) {
+            printMsg("Hash manifest : " + getHashManifestFilepath());
+        }
+
+        // Bundles
+        if (config.isSplitBundles()) {
+            printMsg("Bundles : " + config.getBundles().keySet());
+            printMsg("Bundle manifest : " + getBundleManifestFilepath());
+        }
+
+        // Threads
+        printMsg("Threads : " + threads);
+
+        // Report
+        if (reportFilename != null) {
+            printMsg("Report file : " + reportFilename);
+        }
+
+        // Cache
+        if (cache) {
+            printMsg("Cache file : " + getCacheFilepath());
+        }
+
+        // Artifact cache
+        if (artifactCacheDir != null) {
+            printMsg("Artifact cache : " + new File(artifactCacheDir).getAbsolutePath());
+        }
+
+        // Watch
+        if (watch && getOutputFilepath().equals(getSourceFilepath())) {
+            System.err.println("\n[ERROR] Watch mode requires output file");
             usage();
-            System.err.println(e.getMessage());
             System.exit(1);
-        } 
+        }
+
+        // Dev server
+        if (devServerPort != null && getOutputFilepath().equals(getSourceFilepath())) {
+            System.err.println("\n[ERROR] Dev server requires output file");
+            usage();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Build output file (and watch for changes)
+     * 
+     *   dev server builds output file on requests
+     * 
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void build() throws IOException, InterruptedException {
+        if (devServerPort != null) {
+            new ExtDevServer(this, config, devServerPort).start();
+            return;
+        }
+
+        // Ext file combiner
+        ExtFileCombiner extFileCombiner = new ExtFileCombiner(this, config);
+        extFileCombiner.init();
+
+        if (watch) {
+            new ExtFileWatcher(this, config, extFileCombiner).watch();
+        }
     }
 
     /**
@@ -198,12 +587,9 @@ public class ExtappMain {
         // Default settings
         Boolean verbose = false;
         Boolean delimiter = false;
-        @SuppressWarnings("unused")
         Boolean minify = false;
+        Integer threads = Runtime.getRuntime().availableProcessors();
         String basePath = "";
-        String configFilename = null;
-        String sourceFilename = null;
-        String outputFilename = null;
 
         // Command line parser
         CmdLineParser parser = new CmdLineParser();
@@ -211,11 +597,23 @@ public class ExtappMain {
         CmdLineParser.Option verboseOpt = parser.addBooleanOption('v', "verbose");
         CmdLineParser.Option delimiterOpt = parser.addBooleanOption('l', "delimiter");
         CmdLineParser.Option minifyOpt = parser.addBooleanOption('m', "minify");
+        CmdLineParser.Option threadsOpt = parser.addIntegerOption('t', "threads");
+        CmdLineParser.Option noCacheOpt = parser.addBooleanOption("no-cache");
+        CmdLineParser.Option watchOpt = parser.addBooleanOption('w', "watch");
+        CmdLineParser.Option sourceMapOpt = parser.addBooleanOption("source-map");
+        CmdLineParser.Option contentHashOpt = parser.addBooleanOption("content-hash");
+        CmdLineParser.Option gzipOpt = parser.addBooleanOption("gzip");
+        CmdLineParser.Option reportFilenameOpt = parser.addStringOption("report");
+        CmdLineParser.Option artifactCacheDirOpt = parser.addStringOption("artifact-cache");
+        CmdLineParser.Option serverPortOpt = parser.addIntegerOption("server");
+        CmdLineParser.Option clientPortOpt = parser.addIntegerOption("client");
+        CmdLineParser.Option devServerPortOpt = parser.addIntegerOption("dev-server");
         
         CmdLineParser.Option basePathOpt = parser.addStringOption('b', "basePath");
         CmdLineParser.Option configFilenameOpt = parser.addStringOption('c', "config");
         CmdLineParser.Option sourceFilenameOpt = parser.addStringOption('s', "source");
         CmdLineParser.Option outputFilenameOpt = parser.addStringOption('o', "output");
+        CmdLineParser.Option appsFilenameOpt = parser.addStringOption('a', "apps");
         
         try {
             parser.parse(args);
@@ -230,15 +628,110 @@ public class ExtappMain {
             verbose = parser.getOptionValue(verboseOpt) != null;
             delimiter = parser.getOptionValue(delimiterOpt) != null;
             minify = parser.getOptionValue(minifyOpt) != null;
+            threads = (Integer) parser.getOptionValue(threadsOpt, threads);
+
+            if (threads < 1) {
+                usage();
+                System.exit(1);
+            }
 
             basePath = (String) parser.getOptionValue(basePathOpt);
-            configFilename = (String) parser.getOptionValue(configFilenameOpt);
-            sourceFilename = (String) parser.getOptionValue(sourceFilenameOpt);
-            outputFilename = (String) parser.getOptionValue(outputFilenameOpt);
-    
-            ExtappMain extapp = new ExtappMain(verbose, delimiter, false, basePath, configFilename, sourceFilename, outputFilename);
-            
-            extapp.init();
+
+            // Build server : apps are built on requests
+            Integer serverPort = (Integer) parser.getOptionValue(serverPortOpt);
+            if (serverPort != null) {
+                new ExtBuildServer(serverPort, threads).start();
+                return;
+            }
+
+            String appsFilename = (String) parser.getOptionValue(appsFilenameOpt);
+            Vector<?> configFilenames = parser.getOptionValues(configFilenameOpt);
+            Vector<?> sourceFilenames = parser.getOptionValues(sourceFilenameOpt);
+            Vector<?> outputFilenames = parser.getOptionValues(outputFilenameOpt);
+            List<String[]> appFilenames = new ArrayList<String[]>();
+
+            // Several apps : manifest or config/source/output options repeated in the same order
+            if (appsFilename != null) {
+                appFilenames = ExtappBatch.loadManifest(((basePath != null ? basePath : "") + "/" + appsFilename).replaceAll("\\//", "/"));
+            } else {
+                int count = Math.max(configFilenames.size(), 1);
+
+                if (count > 1 && (sourceFilenames.size() != count 
+                        || (outputFilenames.size() != 0 && outputFilenames.size() != count))) {
+                    System.err.println("\n[ERROR] Each config file requires source file (and output file)");
+                    usage();
+                    System.exit(1);
+                }
+                for (int i = 0; i < count; i++) {
+                    appFilenames.add(new String[] { getFilename(configFilenames, i), getFilename(sourceFilenames, i), 
+                            getFilename(outputFilenames, i) });
+                }
+            }
+
+            Boolean cache = parser.getOptionValue(noCacheOpt) == null;
+            Boolean watch = parser.getOptionValue(watchOpt) != null;
+            Boolean sourceMap = parser.getOptionValue(sourceMapOpt) != null;
+            Boolean contentHash = parser.getOptionValue(contentHashOpt) != null;
+            Boolean gzip = parser.getOptionValue(gzipOpt) != null;
+            String reportFilename = (String) parser.getOptionValue(reportFilenameOpt);
+            String artifactCacheDir = (String) parser.getOptionValue(artifactCacheDirOpt);
+            Integer clientPort = (Integer) parser.getOptionValue(clientPortOpt);
+            Integer devServerPort = (Integer) parser.getOptionValue(devServerPortOpt);
+
+            // Build client : apps are built by build server
+            if (clientPort != null) {
+                ExtBuildClient client = new ExtBuildClient(clientPort);
+                Boolean built = true;
+
+                for (String[] filenames : appFilenames) {
+                    Map<String, String> params = new LinkedHashMap<String, String>();
+                    params.put("basePath", new File(basePath != null ? basePath : "").getAbsolutePath());
+                    params.put("config", filenames[0]);
+                    params.put("source", filenames[1]);
+                    params.put("output", filenames[2]);
+                    params.put("verbose", verbose.toString());
+                    params.put("delimiter", delimiter.toString());
+                    params.put("minify", minify.toString());
+                    params.put("sourceMap", sourceMap.toString());
+                    params.put("contentHash", contentHash.toString());
+                    params.put("gzip", gzip.toString());
+                    params.put("report", reportFilename != null ? new File(reportFilename).getAbsolutePath() : null);
+                    params.put("artifactCache", artifactCacheDir != null ? new File(artifactCacheDir).getAbsolutePath() : null);
+                    built = client.build(params) && built;
+                }
+                System.exit(built ? 0 : 1);
+            }
+            List<ExtappMain> apps = new ArrayList<ExtappMain>();
+
+            for (String[] filenames : appFilenames) {
+                ExtappMain extapp = new ExtappMain(verbose, delimiter, minify, threads, basePath, filenames[0], filenames[1], filenames[2]);
+                
+                extapp.setCache(cache);
+                extapp.setWatch(watch);
+                extapp.setSourceMap(sourceMap);
+                extapp.setContentHash(contentHash);
+                extapp.setGzip(gzip);
+                extapp.setReportFilename(reportFilename);
+                extapp.setArtifactCacheDir(artifactCacheDir);
+                extapp.setDevServerPort(devServerPort);
+                apps.add(extapp);
+            }
+
+            if (devServerPort != null && apps.size() > 1) {
+                System.err.println("\n[ERROR] Dev server serves one app");
+                usage();
+                System.exit(1);
+            }
+
+            if (apps.size() == 1) {
+                apps.get(0).init();
+            } else if (apps.size() > 1) {
+                new ExtappBatch(apps, threads).init();
+            } else {
+                System.err.println("\n[ERROR] No apps specified");
+                usage();
+                System.exit(1);
+            }
             
         } catch (CmdLineParser.OptionException e) {
             usage();
@@ -252,6 +745,10 @@ public class ExtappMain {
         
     }
     
+    private static String getFilename(Vector<?> filenames, int index) {
+        return index < filenames.size() ? (String) filenames.get(index) : null;
+    }
+    
     /**
      * Usage : outputs help information to the console
      *
@@ -264,12 +761,26 @@ public class ExtappMain {
                 + "  -h, --help                    Displays this information\n"
                 + "  -v, --verbose                 Display informational messages and warnings\n"
                 + "  -l, --delimiter               Output a delimiter between combined files\n"
+                + "  -m, --minify                  Minify combined files (remove comments and whitespaces)\n"
+                + "  -t <n>, --threads <n>         Number of threads loading source files. Defaults to number of cores\n"
+                + "  --no-cache                    Do not use dependency and minify caches ({basePath}/.extapp-cache)\n"
+                + "  -w, --watch                   Watch source files and rebuild output on changes\n"
+                + "  --source-map                  Write source map next to output file (<output file>.map)\n"
+                + "  --content-hash                Name output files by content hash (out.3fa9c1d2.js), write <output file>.manifest.json\n"
+                + "  --gzip                        Write gzipped output files (<output file>.gz), compressed in parallel\n"
+                + "  --report <file>               Write build report with phase timings (JSON or <file>.csv)\n"
+                + "  --artifact-cache <dir>        Restore output files of unchanged sources from content-addressed cache <dir>\n"
+                + "  --server <port>               Run build server on localhost. Apps stay loaded between builds\n"
+                + "  --client <port>               Build apps on build server running on localhost\n"
+                + "  --dev-server <port>           Serve base path on localhost. Output file is built on requests in memory\n"
                 + "  -b, --basePath                Base path to web folder (absolute or relative)\n"
                 + "  -c <file>, --config <file>    Config file with extapp options\n"
                 + "  -s <file>, --source <file>    Source file. Starting point to process dependencies.\n"
-                + "  -o <file>, --output <file>    Place the output into <file>. Defaults to source file\n\n"
+                + "  -o <file>, --output <file>    Place the output into <file>. Defaults to source file\n"
+                + "  -a <file>, --apps <file>      Apps manifest. Builds several apps in one run:\n"
+                + "                                { apps : [ { config : <file>, source : <file>, output : <file> } ] }\n\n"
                 
-                + "Required options: -c <file> -s <file>\n\n"
+                + "Required options: -c <file> -s <file> (repeat -c -s -o to build several apps) or -a <file>\n\n"
                 
                 + "Example\n"
                 + "  java -jar .build/extapp-2014.06.jar -v -l -b app" 